@@ -1,32 +1,77 @@
 package com.ady4k.todoistapi.config;
 
+import com.ady4k.todoistapi.dto.UserDto;
+import com.ady4k.todoistapi.service.CacheInvalidationBus;
+import com.ady4k.todoistapi.service.CacheSnapshotStore;
+import com.ady4k.todoistapi.service.CaffeineCacheService;
+import com.ady4k.todoistapi.service.MultiLayerCacheService;
+import com.ady4k.todoistapi.service.OffHeapCacheService;
+import com.ady4k.todoistapi.service.RedisCacheService;
+import com.ady4k.todoistapi.service.RedisCircuitBreaker;
+import com.ady4k.todoistapi.service.codec.CacheCodec;
+import com.ady4k.todoistapi.service.codec.JsonCacheCodec;
+import com.ady4k.todoistapi.service.codec.StringCacheCodec;
+import com.ady4k.todoistapi.service.codec.UserDtoCacheCodec;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.lettuce.core.ClientOptions;
+import io.lettuce.core.SocketOptions;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Profile;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceClientConfiguration;
 import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.time.Duration;
 
 @Configuration
+@EnableConfigurationProperties(CacheProperties.class)
 public class CacheConfig {
+    private static final String USERS_BY_ID_REGION = "users-by-id";
+    private static final String USERS_BY_USERNAME_REGION = "users-by-username";
+    private static final String SESSIONS_REGION = "sessions";
     private static final Logger log = LoggerFactory.getLogger(CacheConfig.class);
 
+    @Bean
+    public LettuceClientConfiguration lettuceClientConfiguration(
+            @Value("${cache.redis.command-timeout-ms:500}") long commandTimeoutMillis,
+            @Value("${cache.redis.connect-timeout-ms:1000}") long connectTimeoutMillis) {
+        SocketOptions socketOptions = SocketOptions.builder()
+                .connectTimeout(Duration.ofMillis(connectTimeoutMillis))
+                .build();
+        return LettuceClientConfiguration.builder()
+                .commandTimeout(Duration.ofMillis(commandTimeoutMillis))
+                .clientOptions(ClientOptions.builder()
+                        .socketOptions(socketOptions)
+                        .disconnectedBehavior(ClientOptions.DisconnectedBehavior.REJECT_COMMANDS)
+                        .build())
+                .build();
+    }
+
     @Bean
     @Profile("debug")
     public RedisConnectionFactory debugRedisConnectionFactory(
+            LettuceClientConfiguration lettuceClientConfiguration,
             @Value("${spring.redis.host:localhost}") String redisHost,
             @Value("${spring.redis.port:6379}") int redisPort) {
         log.warn("--- Creating DEBUG Redis Connection Factory (Connecting to Embedded at {}:{}) ---", redisHost, redisPort);
         RedisStandaloneConfiguration config = new RedisStandaloneConfiguration(redisHost, redisPort);
-        return new LettuceConnectionFactory(config);
+        return new LettuceConnectionFactory(config, lettuceClientConfiguration);
     }
 
     @Bean
     @Profile("dev")
     public RedisConnectionFactory devRedisConnectionFactory(
+            LettuceClientConfiguration lettuceClientConfiguration,
             @Value("${spring.redis.host}") String redisHost,
             @Value("${spring.redis.port:6379}") int redisPort,
             @Value("${spring.redis.password:#{null}}") String redisPassword) {
@@ -35,6 +80,106 @@ public class CacheConfig {
         if (redisPassword != null && !redisPassword.isEmpty()) {
             config.setPassword(redisPassword);
         }
-        return new LettuceConnectionFactory(config);
+        return new LettuceConnectionFactory(config, lettuceClientConfiguration);
+    }
+
+    @Bean
+    public RedisMessageListenerContainer redisMessageListenerContainer(RedisConnectionFactory redisConnectionFactory) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(redisConnectionFactory);
+        return container;
+    }
+
+    @Bean
+    public RedisTemplate<String, byte[]> binaryRedisTemplate(RedisConnectionFactory redisConnectionFactory) {
+        RedisTemplate<String, byte[]> template = new RedisTemplate<>();
+        template.setConnectionFactory(redisConnectionFactory);
+        template.setKeySerializer(RedisSerializer.string());
+        template.setValueSerializer(RedisSerializer.byteArray());
+        template.setHashKeySerializer(RedisSerializer.string());
+        template.setHashValueSerializer(RedisSerializer.byteArray());
+        return template;
+    }
+
+    @Bean
+    public RedisCacheService<String> sessionCache(RedisTemplate<String, byte[]> binaryRedisTemplate,
+                                                  CacheProperties cacheProperties,
+                                                  ObjectMapper objectMapper,
+                                                  RedisCircuitBreaker redisCircuitBreaker) {
+        CacheProperties.Region region = cacheProperties.region(SESSIONS_REGION,
+                new CacheProperties.Region(null, null, null, null, "string", "SESSION:", null));
+        return new RedisCacheService<>(binaryRedisTemplate, codec(region.codec(), String.class, objectMapper), region.keyPrefix(),
+                redisCircuitBreaker);
+    }
+
+    @Bean
+    public MultiLayerCacheService<UserDto> usersByIdCache(RedisTemplate<String, byte[]> binaryRedisTemplate,
+                                                          CacheProperties cacheProperties,
+                                                          ObjectMapper objectMapper,
+                                                          CacheInvalidationBus cacheInvalidationBus,
+                                                          CacheSnapshotStore cacheSnapshotStore,
+                                                          MeterRegistry meterRegistry,
+                                                          RedisCircuitBreaker redisCircuitBreaker) {
+        return userRegion(USERS_BY_ID_REGION, "USER:ID:", cacheProperties, binaryRedisTemplate, objectMapper,
+                cacheInvalidationBus, cacheSnapshotStore, meterRegistry, redisCircuitBreaker);
+    }
+
+    @Bean
+    public MultiLayerCacheService<UserDto> usersByUsernameCache(RedisTemplate<String, byte[]> binaryRedisTemplate,
+                                                                CacheProperties cacheProperties,
+                                                                ObjectMapper objectMapper,
+                                                                CacheInvalidationBus cacheInvalidationBus,
+                                                                CacheSnapshotStore cacheSnapshotStore,
+                                                                MeterRegistry meterRegistry,
+                                                                RedisCircuitBreaker redisCircuitBreaker) {
+        return userRegion(USERS_BY_USERNAME_REGION, "USER:USERNAME:", cacheProperties, binaryRedisTemplate, objectMapper,
+                cacheInvalidationBus, cacheSnapshotStore, meterRegistry, redisCircuitBreaker);
+    }
+
+    // User regions differ only by name and default key prefix; everything else comes from cache.regions.<name> and cache.*.
+    private MultiLayerCacheService<UserDto> userRegion(String name,
+                                                       String defaultKeyPrefix,
+                                                       CacheProperties cacheProperties,
+                                                       RedisTemplate<String, byte[]> binaryRedisTemplate,
+                                                       ObjectMapper objectMapper,
+                                                       CacheInvalidationBus cacheInvalidationBus,
+                                                       CacheSnapshotStore cacheSnapshotStore,
+                                                       MeterRegistry meterRegistry,
+                                                       RedisCircuitBreaker redisCircuitBreaker) {
+        CacheProperties.Region region = cacheProperties.region(name,
+                new CacheProperties.Region(10000L, null, Duration.ofMinutes(30), Duration.ofSeconds(30), "binary", defaultKeyPrefix, null));
+        CacheCodec<UserDto> codec = codec(region.codec(), UserDto.class, objectMapper);
+        CaffeineCacheService<UserDto> localCache = region.maximumWeight() != null
+                ? new CaffeineCacheService<>(region.ttl(), region.maximumWeight(), value -> codec.encode(value).length)
+                : new CaffeineCacheService<>(region.ttl(), region.maximumSize());
+        localCache.bindMetrics(meterRegistry, name);
+        cacheSnapshotStore.register(name, localCache, codec);
+        OffHeapCacheService<UserDto> offHeapCache = null;
+        if (region.offHeapCapacity() != null) {
+            offHeapCache = new OffHeapCacheService<>(codec, region.ttl(), region.offHeapCapacity().toBytes());
+            offHeapCache.bindMetrics(meterRegistry, name);
+        }
+        RedisCacheService<UserDto> redisCache = new RedisCacheService<>(binaryRedisTemplate, codec, region.keyPrefix(), redisCircuitBreaker);
+        log.info("Cache region {}: size={}, weight={}, offHeap={}, ttl={}, negativeTtl={}, codec={}, prefix={}", name,
+                region.maximumSize(), region.maximumWeight(), region.offHeapCapacity(), region.ttl(), region.negativeTtl(),
+                region.codec(), region.keyPrefix());
+        MultiLayerCacheService.Settings settings = new MultiLayerCacheService.Settings(region.ttl(), region.negativeTtl(),
+                Duration.ofMillis(cacheProperties.loadLockTimeoutMs()), cacheProperties.refreshAheadRatio(),
+                cacheProperties.writeBehind().capacity(), Duration.ofMillis(cacheProperties.writeBehind().intervalMs()));
+        return new MultiLayerCacheService<>(name, localCache, offHeapCache, redisCache, cacheInvalidationBus, settings);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> CacheCodec<T> codec(String name, Class<T> type, ObjectMapper objectMapper) {
+        if ("json".equals(name)) {
+            return new JsonCacheCodec<>(objectMapper, type);
+        }
+        if ("string".equals(name) && type == String.class) {
+            return (CacheCodec<T>) new StringCacheCodec();
+        }
+        if ("binary".equals(name) && type == UserDto.class) {
+            return (CacheCodec<T>) new UserDtoCacheCodec();
+        }
+        throw new IllegalArgumentException("Codec " + name + " cannot store " + type.getSimpleName());
     }
 }
@@ -0,0 +1,51 @@
+package com.ady4k.todoistapi.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Cache settings under {@code cache.*}. {@code regions} holds the per-region settings; the load lock, refresh-ahead and
+ * write-behind settings are shared by every multi-layer region.
+ */
+@ConfigurationProperties(prefix = "cache")
+public record CacheProperties(Map<String, Region> regions,
+                              @DefaultValue("5000") long loadLockTimeoutMs,
+                              @DefaultValue("0.2") double refreshAheadRatio,
+                              @DefaultValue WriteBehind writeBehind) {
+    public CacheProperties {
+        regions = regions == null ? Map.of() : Map.copyOf(regions);
+    }
+
+    public Region region(String name, Region defaults) {
+        Region configured = regions.get(name);
+        return configured == null ? defaults : configured.withDefaults(defaults);
+    }
+
+    /**
+     * Settings of one named cache region. Set either {@code maximumSize} (entries) or {@code maximumWeight}
+     * (encoded bytes) to bound the local layer; {@code ttl} applies to both layers unless a caller passes its own.
+     * {@code negativeTtl} is how long a key that was looked up and does not exist is remembered as absent.
+     * {@code offHeapCapacity} adds an off-heap tier of that size between the local layer and Redis.
+     */
+    public record Region(Long maximumSize, Long maximumWeight, Duration ttl, Duration negativeTtl, String codec, String keyPrefix,
+                         DataSize offHeapCapacity) {
+        Region withDefaults(Region defaults) {
+            boolean sized = maximumSize != null || maximumWeight != null;
+            return new Region(
+                    sized ? maximumSize : defaults.maximumSize(),
+                    sized ? maximumWeight : defaults.maximumWeight(),
+                    ttl != null ? ttl : defaults.ttl(),
+                    negativeTtl != null ? negativeTtl : defaults.negativeTtl(),
+                    codec != null ? codec : defaults.codec(),
+                    keyPrefix != null ? keyPrefix : defaults.keyPrefix(),
+                    offHeapCapacity != null ? offHeapCapacity : defaults.offHeapCapacity());
+        }
+    }
+
+    public record WriteBehind(@DefaultValue("10000") int capacity, @DefaultValue("20") long intervalMs) {
+    }
+}
@@ -1,6 +1,8 @@
 package com.ady4k.todoistapi.config;
 
 import com.ady4k.todoistapi.security.JwtAuthFilter;
+import com.ady4k.todoistapi.security.PublicRoutes;
+import jakarta.servlet.DispatcherType;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -25,10 +27,11 @@ public class SecurityConfig {
     @Bean
     public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
         http.csrf(AbstractHttpConfigurer::disable);
+        http.logout(AbstractHttpConfigurer::disable);
         http.authorizeHttpRequests(auth -> {
-                            auth.requestMatchers(
-                                    "/login",
-                                    "/register").permitAll();
+                            auth.requestMatchers(PublicRoutes.MATCHER).permitAll();
+                            // The request that started a streamed response was already authorized.
+                            auth.dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll();
                             auth.anyRequest().authenticated();
                         });
         http.sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS));
@@ -2,34 +2,52 @@ package com.ady4k.todoistapi.controller;
 
 import com.ady4k.todoistapi.dto.AuthRequest;
 import com.ady4k.todoistapi.dto.AuthResponse;
+import com.ady4k.todoistapi.dto.RefreshRequest;
 import com.ady4k.todoistapi.dto.UserDto;
+import com.ady4k.todoistapi.security.LoginRateLimiter;
 import com.ady4k.todoistapi.service.AuthService;
 import com.ady4k.todoistapi.service.UserService;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RestController;
 
 @RestController
 public class AuthController {
     private final UserService userService;
     private final AuthService authService;
+    private final LoginRateLimiter loginRateLimiter;
 
-    public AuthController(UserService userService, AuthService authService) {
+    public AuthController(UserService userService, AuthService authService, LoginRateLimiter loginRateLimiter) {
         this.userService = userService;
         this.authService = authService;
+        this.loginRateLimiter = loginRateLimiter;
     }
 
     @PostMapping("/login")
-    public ResponseEntity<AuthResponse> login(@RequestBody AuthRequest request) {
-        String token = authService.loginByCredentials(request);
-        return ResponseEntity.ok(new AuthResponse(token));
+    public ResponseEntity<AuthResponse> login(@RequestBody AuthRequest request, HttpServletRequest servletRequest) {
+        loginRateLimiter.checkLimit(servletRequest.getRemoteAddr(), request.getUsername());
+        return ResponseEntity.ok(authService.loginByCredentials(request));
+    }
+
+    @PostMapping("/refresh")
+    public ResponseEntity<AuthResponse> refresh(@RequestBody RefreshRequest request) {
+        return ResponseEntity.ok(authService.refresh(request.getRefreshToken()));
+    }
+
+    @PostMapping("/logout")
+    public ResponseEntity<Void> logout(@RequestHeader("Authorization") String authHeader) {
+        authService.logout(authHeader.substring(7));
+        return ResponseEntity.noContent().build();
     }
 
     @PostMapping("/register")
-    public ResponseEntity<String> register(@RequestBody @Validated AuthRequest request) {
+    public ResponseEntity<String> register(@RequestBody @Validated AuthRequest request, HttpServletRequest servletRequest) {
+        loginRateLimiter.checkLimit(servletRequest.getRemoteAddr(), request.getUsername());
         UserDto createdUser = userService.createUser(new UserDto(request.getUsername(), request.getPassword()));
         return ResponseEntity.status(HttpStatus.CREATED).body(createdUser.toString());
     }
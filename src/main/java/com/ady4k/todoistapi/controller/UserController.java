@@ -1,24 +1,37 @@
 package com.ady4k.todoistapi.controller;
 
 import com.ady4k.todoistapi.dto.UserDto;
+import com.ady4k.todoistapi.dto.UserPageDto;
+import com.ady4k.todoistapi.service.UserExportService;
 import com.ady4k.todoistapi.service.UserService;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
-
-import java.util.List;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @RestController
 @RequestMapping("/api/users")
 public class UserController {
     private final UserService userService;
+    private final UserExportService userExportService;
 
-    public UserController(UserService userService) {
+    public UserController(UserService userService, UserExportService userExportService) {
         this.userService = userService;
+        this.userExportService = userExportService;
     }
 
     @GetMapping
-    public ResponseEntity<List<UserDto>> getAllUsers() {
-        return ResponseEntity.ok(userService.getAllUsers());
+    public ResponseEntity<UserPageDto> getUsers(@RequestParam(required = false) String cursor,
+                                                @RequestParam(defaultValue = "" + UserService.DEFAULT_PAGE_SIZE) int limit) {
+        return ResponseEntity.ok(userService.getUsers(cursor, limit));
+    }
+
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportUsers() {
+        StreamingResponseBody body = userExportService::exportNdjson;
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
     }
 
     @GetMapping("/{id}")
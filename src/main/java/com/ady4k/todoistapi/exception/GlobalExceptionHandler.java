@@ -18,8 +18,18 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>(exc.getMessage(), HttpStatus.BAD_REQUEST);
     }
 
+    @ExceptionHandler(InvalidCursorException.class)
+    public ResponseEntity<String> handleInvalidCursor(InvalidCursorException exc) {
+        return new ResponseEntity<>(exc.getMessage(), HttpStatus.BAD_REQUEST);
+    }
+
+    @ExceptionHandler(InvalidTokenException.class)
+    public ResponseEntity<String> handleInvalidToken(InvalidTokenException exc) {
+        return new ResponseEntity<>(exc.getMessage(), HttpStatus.UNAUTHORIZED);
+    }
+
     @ExceptionHandler(HttpClientErrorException.TooManyRequests.class)
     public ResponseEntity<String> handleTooManyRequests(HttpClientErrorException exc) {
-        return new ResponseEntity<>(exc.getMessage(), HttpStatus.BAD_REQUEST);
+        return new ResponseEntity<>(exc.getStatusText(), HttpStatus.TOO_MANY_REQUESTS);
     }
 }
@@ -0,0 +1,7 @@
+package com.ady4k.todoistapi.exception;
+
+public class InvalidCursorException extends RuntimeException {
+    public InvalidCursorException(String message) {
+        super(message);
+    }
+}
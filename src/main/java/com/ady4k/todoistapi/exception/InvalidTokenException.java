@@ -0,0 +1,7 @@
+package com.ady4k.todoistapi.exception;
+
+public class InvalidTokenException extends RuntimeException {
+    public InvalidTokenException(String message) {
+        super(message);
+    }
+}
@@ -1,10 +1,36 @@
 package com.ady4k.todoistapi.repository;
 
 import com.ady4k.todoistapi.model.User;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface UserRepository extends JpaRepository<User, Long> {
+    // Loads the full entity, password hash included; only for authentication.
     Optional<User> findByUsername(String username);
+
+    boolean existsByUsername(String username);
+
+    @Transactional(readOnly = true)
+    Optional<UserSummary> findSummaryById(Long id);
+
+    @Transactional(readOnly = true)
+    Optional<UserSummary> findSummaryByUsername(String username);
+
+    // Keyset page on the primary key index: WHERE id > ? ORDER BY id LIMIT ?
+    @Transactional(readOnly = true)
+    List<UserSummary> findSummariesByIdGreaterThanOrderByIdAsc(Long id, Limit limit);
+
+    // Must be consumed inside a transaction and closed; rows are fetched from the cursor 500 at a time.
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("select new com.ady4k.todoistapi.repository.UserSummary(u.id, u.username) from User u order by u.id")
+    Stream<UserSummary> streamAllOrderedById();
 }
@@ -0,0 +1,5 @@
+package com.ady4k.todoistapi.repository;
+
+// Read-side projection of a user: selects only these columns, never the password hash, and is not a managed entity.
+public record UserSummary(Long id, String username) {
+}
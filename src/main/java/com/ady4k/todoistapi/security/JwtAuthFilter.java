@@ -1,7 +1,8 @@
 package com.ady4k.todoistapi.security;
 
-import com.ady4k.todoistapi.dto.UserDto;
 import com.ady4k.todoistapi.service.TokenService;
+import com.ady4k.todoistapi.service.UserService;
+import io.jsonwebtoken.JwtException;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -9,7 +10,7 @@ import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
@@ -18,41 +19,58 @@ import java.io.IOException;
 
 @Component
 public class JwtAuthFilter extends OncePerRequestFilter {
-    private final UserDetailsService userDetailsService;
+    private final UserService userService;
     private final TokenService tokenService;
     private final JwtUtil jwtUtil;
 
-    public JwtAuthFilter(UserDetailsService userDetailsService, TokenService tokenService, JwtUtil jwtUtil) {
-        this.userDetailsService = userDetailsService;
+    public JwtAuthFilter(UserService userService, TokenService tokenService, JwtUtil jwtUtil) {
+        this.userService = userService;
         this.tokenService = tokenService;
         this.jwtUtil = jwtUtil;
     }
 
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return PublicRoutes.MATCHER.matches(request);
+    }
+
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
-        String authHeader = request.getHeader("Authorization");
         if (SecurityContextHolder.getContext().getAuthentication() != null) {
             filterChain.doFilter(request, response);
             return;
         }
 
+        String authHeader = request.getHeader("Authorization");
         if (authHeader == null || !authHeader.startsWith("Bearer ")) {
-            filterChain.doFilter(request, response);
             sendErrorResponse(response, HttpServletResponse.SC_UNAUTHORIZED, "Authorization header is either missing or invalid");
             return;
         }
 
         String token = authHeader.substring(7);
-        String username = jwtUtil.extractUsername(token);
+        VerifiedToken verifiedToken;
+        try {
+            verifiedToken = jwtUtil.verify(token);
+        } catch (JwtException ex) {
+            sendErrorResponse(response, HttpServletResponse.SC_FORBIDDEN, "Token is invalid");
+            return;
+        }
 
+        String username = verifiedToken.subject();
         if (username == null) {
             sendErrorResponse(response, HttpServletResponse.SC_FORBIDDEN, "Token is invalid");
             return;
         }
 
-        UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+        UserDetails userDetails;
+        try {
+            userDetails = userService.loadAuthenticatedUser(username);
+        } catch (UsernameNotFoundException ex) {
+            sendErrorResponse(response, HttpServletResponse.SC_FORBIDDEN, "Token is invalid or expired");
+            return;
+        }
 
-        if (userDetails == null || !tokenService.isTokenValid(token, new UserDto(userDetails.getUsername()))) {
+        if (userDetails == null || !tokenService.isTokenValid(verifiedToken, userDetails)) {
             sendErrorResponse(response, HttpServletResponse.SC_FORBIDDEN, "Token is invalid or expired");
             return;
         }
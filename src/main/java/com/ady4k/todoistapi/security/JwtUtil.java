@@ -1,8 +1,12 @@
 package com.ady4k.todoistapi.security;
 
 import com.ady4k.todoistapi.dto.UserDto;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.Keys;
 import jakarta.annotation.PostConstruct;
@@ -13,7 +17,13 @@ import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
 import java.util.Date;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 @Component
 public class JwtUtil {
@@ -21,34 +31,76 @@ public class JwtUtil {
 
     private final String secretKey;
     private final long expirationTimeMinutes;
+    private final Cache<String, VerifiedToken> verifiedTokens;
+    private final Cache<String, String> rejectedTokens;
 
     private SecretKey signingKey;
+    private JwtParser jwtParser;
 
-    public JwtUtil(@Value("${token.secret}")String secretKey,
-                   @Value("${token.expiration.time.minutes}") long expirationTimeMinutes) {
+    public JwtUtil(@Value("${token.secret}") String secretKey,
+                   @Value("${token.expiration.time.minutes}") long expirationTimeMinutes,
+                   @Value("${token.cache.maximum-size:10000}") long cacheMaximumSize,
+                   @Value("${token.cache.rejected-ttl-seconds:30}") long rejectedTtlSeconds) {
         this.secretKey = secretKey;
         this.expirationTimeMinutes = expirationTimeMinutes;
+        this.verifiedTokens = Caffeine.newBuilder()
+                .maximumSize(cacheMaximumSize)
+                .expireAfter(new TokenExpiry())
+                .build();
+        this.rejectedTokens = Caffeine.newBuilder()
+                .maximumSize(cacheMaximumSize)
+                .expireAfterWrite(rejectedTtlSeconds, TimeUnit.SECONDS)
+                .build();
     }
 
     @PostConstruct
     public void init() {
         log.debug("Initializing JwtUtil with secret key: {}", secretKey);
         this.signingKey = Keys.hmacShaKeyFor(secretKey.getBytes());
+        this.jwtParser = Jwts.parser()
+                .verifyWith(this.signingKey)
+                .build();
         log.info("JWT Util initialized successfully with expiration time: {} minutes", expirationTimeMinutes);
     }
 
     public String generateToken(UserDto userDto) {
         return Jwts.builder()
+                .id(UUID.randomUUID().toString())
                 .subject(userDto.getUsername())
                 .issuedAt(new Date(System.currentTimeMillis()))
-                .expiration(new Date(System.currentTimeMillis() + expirationTimeMinutes))
+                .expiration(new Date(System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(expirationTimeMinutes)))
                 .signWith(this.signingKey)
                 .compact();
     }
 
+    public VerifiedToken verify(String token) throws JwtException {
+        String digest = digest(token);
+        VerifiedToken cached = verifiedTokens.getIfPresent(digest);
+        if (cached != null) {
+            return cached;
+        }
+        String rejection = rejectedTokens.getIfPresent(digest);
+        if (rejection != null) {
+            throw new JwtException(rejection);
+        }
+
+        VerifiedToken verifiedToken;
+        try {
+            verifiedToken = VerifiedToken.of(token, parseClaims(token));
+        } catch (JwtException ex) {
+            rejectedTokens.put(digest, ex.getMessage());
+            throw ex;
+        }
+        verifiedTokens.put(digest, verifiedToken);
+        return verifiedToken;
+    }
+
     public boolean isTokenValid(String token, UserDetails userDetails) {
-        final String username = extractUsername(token);
-        return username.equals(userDetails.getUsername()) && !isTokenExpired(token);
+        return isTokenValid(verify(token), userDetails);
+    }
+
+    public boolean isTokenValid(VerifiedToken verifiedToken, UserDetails userDetails) {
+        return verifiedToken.subject().equals(userDetails.getUsername()) && !verifiedToken.isExpired();
     }
 
     public String extractUsername(String token) {
@@ -60,20 +112,45 @@ public class JwtUtil {
     }
 
     public Claims extractAllClaims(String token) throws JwtException {
+        return verify(token).claims();
+    }
+
+    private Claims parseClaims(String token) throws JwtException {
         Claims jws;
         try {
-            jws = Jwts.parser()
-                    .verifyWith(this.signingKey)
-                    .build()
-                    .parseSignedClaims(token)
-                    .getPayload();
+            jws = jwtParser.parseSignedClaims(token).getPayload();
         } catch (JwtException ex) {
             throw new JwtException(ex.getMessage());
         }
         return jws;
     }
 
-    private boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+    public static String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 is not available", ex);
+        }
+    }
+
+    private final class TokenExpiry implements Expiry<String, VerifiedToken> {
+        @Override
+        public long expireAfterCreate(String key, VerifiedToken value, long currentTime) {
+            long remainingMillis = value.expiration() != null
+                    ? value.getRemainingMillis()
+                    : TimeUnit.MINUTES.toMillis(expirationTimeMinutes);
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(remainingMillis, 0));
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, VerifiedToken value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+
+        @Override
+        public long expireAfterRead(String key, VerifiedToken value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
     }
 }
@@ -0,0 +1,164 @@
+package com.ady4k.todoistapi.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+@Component
+public class LoginRateLimiter {
+    private static final String KEY_PREFIX = "RATE:";
+    private static final Logger log = LoggerFactory.getLogger(LoginRateLimiter.class);
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final boolean enabled;
+    private final double capacity;
+    private final double refillPerNano;
+    private final long windowMillis;
+    private final Cache<String, Bucket> buckets;
+    private final Set<String> dirtyKeys = ConcurrentHashMap.newKeySet();
+
+    public LoginRateLimiter(StringRedisTemplate stringRedisTemplate,
+                            @Value("${rate-limit.login.enabled:true}") boolean enabled,
+                            @Value("${rate-limit.login.capacity:10}") int capacity,
+                            @Value("${rate-limit.login.refill-per-minute:10}") int refillPerMinute) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.enabled = enabled;
+        this.capacity = capacity;
+        this.refillPerNano = refillPerMinute / (double) TimeUnit.MINUTES.toNanos(1);
+        this.windowMillis = TimeUnit.MINUTES.toMillis(1);
+        this.buckets = Caffeine.newBuilder()
+                .expireAfterAccess(Duration.ofMinutes(10))
+                .maximumSize(100_000)
+                .build();
+    }
+
+    public void checkLimit(String clientAddress, String username) {
+        if (!enabled) {
+            return;
+        }
+        // An address that is already throttled must not keep draining the username's bucket and lock its real owner out.
+        boolean allowed = tryAcquire("IP:" + clientAddress) && (username == null || tryAcquire("USER:" + username));
+        if (!allowed) {
+            throw HttpClientErrorException.create(HttpStatus.TOO_MANY_REQUESTS, "Too many attempts, try again later", null, null, null);
+        }
+    }
+
+    boolean tryAcquire(String key) {
+        Bucket bucket = buckets.get(key, ignored -> new Bucket(capacity));
+        boolean acquired = bucket.tryConsume(capacity, refillPerNano);
+        if (acquired) {
+            dirtyKeys.add(key);
+        }
+        return acquired;
+    }
+
+    // Each node spends its local bucket and periodically pushes what it spent to a per-window counter in Redis.
+    // Whatever the other nodes spent in the same window is then taken out of the local bucket.
+    @Scheduled(fixedDelayString = "${rate-limit.login.sync-interval-ms:1000}")
+    public void syncWithRedis() {
+        if (dirtyKeys.isEmpty()) {
+            return;
+        }
+        long window = System.currentTimeMillis() / windowMillis;
+        List<String> keys = new ArrayList<>(dirtyKeys);
+        dirtyKeys.removeAll(keys);
+
+        List<Bucket> pending = new ArrayList<>(keys.size());
+        List<Long> deltas = new ArrayList<>(keys.size());
+        for (String key : keys) {
+            Bucket bucket = buckets.getIfPresent(key);
+            pending.add(bucket);
+            deltas.add(bucket == null ? 0L : bucket.drainUnsynced());
+        }
+
+        List<Object> results;
+        try {
+            results = stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                StringRedisConnection stringConnection = (StringRedisConnection) connection;
+                for (int i = 0; i < keys.size(); i++) {
+                    String redisKey = KEY_PREFIX + keys.get(i) + ":" + window;
+                    stringConnection.incrBy(redisKey, deltas.get(i));
+                    stringConnection.pExpire(redisKey, windowMillis * 2);
+                }
+                return null;
+            });
+        } catch (RuntimeException ex) {
+            log.debug("Rate limit sync with Redis failed, keeping local counts: {}", ex.getMessage());
+            for (int i = 0; i < keys.size(); i++) {
+                if (pending.get(i) != null) {
+                    pending.get(i).restoreUnsynced(deltas.get(i));
+                    dirtyKeys.add(keys.get(i));
+                }
+            }
+            return;
+        }
+
+        for (int i = 0; i < keys.size(); i++) {
+            Bucket bucket = pending.get(i);
+            if (bucket != null && results.get(i * 2) instanceof Long globalCount) {
+                bucket.applyGlobalCount(window, globalCount, deltas.get(i));
+            }
+        }
+    }
+
+    static final class Bucket {
+        private double tokens;
+        private long lastRefillNanos;
+        private long unsynced;
+        private long syncedWindow = -1;
+        private long lastGlobalCount;
+
+        Bucket(double capacity) {
+            this.tokens = capacity;
+            this.lastRefillNanos = System.nanoTime();
+        }
+
+        synchronized boolean tryConsume(double capacity, double refillPerNano) {
+            long now = System.nanoTime();
+            tokens = Math.min(capacity, tokens + (now - lastRefillNanos) * refillPerNano);
+            lastRefillNanos = now;
+            if (tokens < 1) {
+                return false;
+            }
+            tokens -= 1;
+            unsynced++;
+            return true;
+        }
+
+        synchronized long drainUnsynced() {
+            long drained = unsynced;
+            unsynced = 0;
+            return drained;
+        }
+
+        synchronized void restoreUnsynced(long delta) {
+            unsynced += delta;
+        }
+
+        synchronized void applyGlobalCount(long window, long globalCount, long localDelta) {
+            long previous = window == syncedWindow ? lastGlobalCount : 0;
+            long remoteSpent = globalCount - previous - localDelta;
+            if (remoteSpent > 0) {
+                tokens = Math.max(0, tokens - remoteSpent);
+            }
+            syncedWindow = window;
+            lastGlobalCount = globalCount;
+        }
+    }
+}
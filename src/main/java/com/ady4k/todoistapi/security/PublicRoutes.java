@@ -0,0 +1,22 @@
+package com.ady4k.todoistapi.security;
+
+import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
+import org.springframework.security.web.util.matcher.OrRequestMatcher;
+import org.springframework.security.web.util.matcher.RequestMatcher;
+
+import java.util.Arrays;
+
+public final class PublicRoutes {
+    public static final String[] PATTERNS = {
+            "/login",
+            "/refresh",
+            "/register"
+    };
+
+    public static final RequestMatcher MATCHER = new OrRequestMatcher(Arrays.stream(PATTERNS)
+            .map(AntPathRequestMatcher::new)
+            .toArray(RequestMatcher[]::new));
+
+    private PublicRoutes() {
+    }
+}
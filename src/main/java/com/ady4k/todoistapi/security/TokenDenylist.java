@@ -0,0 +1,152 @@
+package com.ady4k.todoistapi.security;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+@Component
+public class TokenDenylist implements MessageListener {
+    public static final String REVOCATION_CHANNEL = "token:revoked";
+    private static final String REVOKED_KEY_PREFIX = "TOKEN:REVOKED:";
+    private static final long BUCKET_MILLIS = 60 * 1000;
+    private static final Logger log = LoggerFactory.getLogger(TokenDenylist.class);
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+    // Whether revocations are shared through Redis: stored and published on revoke, subscribed to and resynced from.
+    private final boolean replicated;
+
+    // Lookups only touch revokedIds; the buckets group ids by expiry minute so purging drops whole buckets.
+    private final Set<String> revokedIds = ConcurrentHashMap.newKeySet();
+    private final ConcurrentSkipListMap<Long, Set<String>> buckets = new ConcurrentSkipListMap<>();
+
+    public TokenDenylist(StringRedisTemplate stringRedisTemplate,
+                         RedisMessageListenerContainer listenerContainer,
+                         @Value("${token.denylist.replicated:false}") boolean replicated) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.listenerContainer = listenerContainer;
+        this.replicated = replicated;
+    }
+
+    @PostConstruct
+    public void init() {
+        if (!replicated) {
+            return;
+        }
+        listenerContainer.addMessageListener(this, new ChannelTopic(REVOCATION_CHANNEL));
+        int loaded = loadFromRedis();
+        log.info("Loaded {} revoked token ids from Redis", loaded);
+    }
+
+    // Pub/sub does not redeliver, so revocations published while this node's subscriber was disconnected are picked up here.
+    @Scheduled(fixedDelayString = "${token.denylist.resync-interval-ms:30000}")
+    public void resync() {
+        if (!replicated) {
+            return;
+        }
+        int missed = loadFromRedis();
+        if (missed > 0) {
+            log.info("Resynced {} revoked token ids missed over pub/sub", missed);
+        }
+    }
+
+    public boolean isRevoked(String tokenId) {
+        return tokenId != null && revokedIds.contains(tokenId);
+    }
+
+    public void revoke(String tokenId, long expiresAtMillis) {
+        long remainingMillis = expiresAtMillis - System.currentTimeMillis();
+        if (tokenId == null || remainingMillis <= 0) {
+            return;
+        }
+        add(tokenId, expiresAtMillis);
+        if (!replicated) {
+            return;
+        }
+        try {
+            stringRedisTemplate.opsForValue().set(REVOKED_KEY_PREFIX + tokenId, Long.toString(expiresAtMillis), Duration.ofMillis(remainingMillis));
+            stringRedisTemplate.convertAndSend(REVOCATION_CHANNEL, tokenId + ":" + expiresAtMillis);
+        } catch (DataAccessException ex) {
+            log.warn("Token {} is revoked on this node only, Redis is unavailable: {}", tokenId, ex.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelay = BUCKET_MILLIS)
+    public void purgeExpired() {
+        long currentBucket = System.currentTimeMillis() / BUCKET_MILLIS;
+        Iterator<Map.Entry<Long, Set<String>>> iterator = buckets.headMap(currentBucket).entrySet().iterator();
+        while (iterator.hasNext()) {
+            revokedIds.removeAll(iterator.next().getValue());
+            iterator.remove();
+        }
+    }
+
+    public int size() {
+        return revokedIds.size();
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        int separator = body.lastIndexOf(':');
+        if (separator <= 0) {
+            log.warn("Ignoring malformed revocation message: {}", body);
+            return;
+        }
+        try {
+            add(body.substring(0, separator), Long.parseLong(body.substring(separator + 1)));
+        } catch (NumberFormatException ex) {
+            log.warn("Ignoring malformed revocation message: {}", body);
+        }
+    }
+
+    private boolean add(String tokenId, long expiresAtMillis) {
+        // Bucket by the minute after expiry so an id is never purged while its token can still verify.
+        long bucket = expiresAtMillis / BUCKET_MILLIS + 1;
+        buckets.computeIfAbsent(bucket, key -> ConcurrentHashMap.newKeySet()).add(tokenId);
+        return revokedIds.add(tokenId);
+    }
+
+    // Returns how many of the ids stored in Redis were not yet known on this node.
+    private int loadFromRedis() {
+        int added = 0;
+        ScanOptions options = ScanOptions.scanOptions().match(REVOKED_KEY_PREFIX + "*").count(1000).build();
+        List<String> keys = new ArrayList<>();
+        try (Cursor<String> cursor = stringRedisTemplate.scan(options)) {
+            while (cursor.hasNext()) {
+                keys.add(cursor.next());
+            }
+            List<String> values = keys.isEmpty() ? List.of() : stringRedisTemplate.opsForValue().multiGet(keys);
+            for (int i = 0; i < keys.size(); i++) {
+                String expiresAt = values.get(i);
+                if (expiresAt != null && add(keys.get(i).substring(REVOKED_KEY_PREFIX.length()), Long.parseLong(expiresAt))) {
+                    added++;
+                }
+            }
+        } catch (RuntimeException ex) {
+            log.warn("Could not load revoked tokens from Redis: {}", ex.getMessage());
+        }
+        return added;
+    }
+}
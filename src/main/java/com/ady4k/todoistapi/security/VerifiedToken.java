@@ -0,0 +1,19 @@
+package com.ady4k.todoistapi.security;
+
+import io.jsonwebtoken.Claims;
+
+import java.util.Date;
+
+public record VerifiedToken(String token, String id, String subject, Date expiration, Date issuedAt, Claims claims) {
+    public static VerifiedToken of(String token, Claims claims) {
+        return new VerifiedToken(token, claims.getId(), claims.getSubject(), claims.getExpiration(), claims.getIssuedAt(), claims);
+    }
+
+    public boolean isExpired() {
+        return expiration != null && expiration.before(new Date());
+    }
+
+    public long getRemainingMillis() {
+        return expiration == null ? 0 : expiration.getTime() - System.currentTimeMillis();
+    }
+}
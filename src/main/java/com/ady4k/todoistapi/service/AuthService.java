@@ -1,29 +1,44 @@
 package com.ady4k.todoistapi.service;
 
 import com.ady4k.todoistapi.dto.AuthRequest;
+import com.ady4k.todoistapi.dto.AuthResponse;
 import com.ady4k.todoistapi.dto.UserDto;
 import com.ady4k.todoistapi.model.User;
-import com.ady4k.todoistapi.repository.UserRepository;
+import com.ady4k.todoistapi.security.JwtUtil;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Service;
 
 @Service
 public class AuthService {
     private final AuthenticationManager authenticationManager;
-    private final UserRepository userRepository;
     private final TokenService tokenService;
+    private final JwtUtil jwtUtil;
 
-    public AuthService(AuthenticationManager authenticationManager, UserRepository userRepository, TokenService tokenService) {
+    public AuthService(AuthenticationManager authenticationManager, TokenService tokenService, JwtUtil jwtUtil) {
         this.authenticationManager = authenticationManager;
-        this.userRepository = userRepository;
         this.tokenService = tokenService;
+        this.jwtUtil = jwtUtil;
     }
 
-    public String loginByCredentials(AuthRequest request) {
-        authenticationManager.authenticate(new UsernamePasswordAuthenticationToken(request.getUsername(), request.getPassword()));
-        User user = userRepository.findByUsername(request.getUsername()).orElseThrow();
+    public AuthResponse loginByCredentials(AuthRequest request) {
+        Authentication authentication = authenticationManager.authenticate(
+                new UsernamePasswordAuthenticationToken(request.getUsername(), request.getPassword()));
+        if (!(authentication.getPrincipal() instanceof User user)) {
+            throw new IllegalStateException("Unexpected principal type after authentication");
+        }
 
-        return tokenService.getOrCreateToken(new UserDto(user.getId(), user.getUsername(), user.getPassword()));
+        UserDto userDto = new UserDto(user.getId(), user.getUsername());
+        return new AuthResponse(tokenService.getOrCreateToken(userDto), tokenService.createRefreshToken(userDto));
+    }
+
+    public AuthResponse refresh(String refreshToken) {
+        TokenService.RefreshGrant grant = tokenService.rotateRefreshToken(refreshToken);
+        return new AuthResponse(tokenService.getOrCreateToken(new UserDto(grant.username())), grant.refreshToken());
+    }
+
+    public void logout(String token) {
+        tokenService.revokeToken(jwtUtil.verify(token));
     }
 }
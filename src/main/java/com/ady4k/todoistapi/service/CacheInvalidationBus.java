@@ -0,0 +1,160 @@
+package com.ady4k.todoistapi.service;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+@Component
+public class CacheInvalidationBus implements MessageListener {
+    public static final String INVALIDATION_CHANNEL = "cache:invalidate";
+    static final String CLEAR_ALL = "*";
+    private static final Logger log = LoggerFactory.getLogger(CacheInvalidationBus.class);
+
+    private final RedisTemplate<String, byte[]> binaryRedisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final boolean enabled;
+    private final int maxBatchSize;
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private final Map<String, List<CacheService<?>>> localCaches = new ConcurrentHashMap<>();
+    // Keys are only ever mutated inside compute(), so a set removed by flush() is no longer written to.
+    private final Map<String, Set<String>> pendingKeys = new ConcurrentHashMap<>();
+
+    public CacheInvalidationBus(RedisTemplate<String, byte[]> binaryRedisTemplate,
+                                RedisMessageListenerContainer listenerContainer,
+                                @Value("${cache.invalidation.enabled:false}") boolean enabled,
+                                @Value("${cache.invalidation.max-batch-size:500}") int maxBatchSize) {
+        this.binaryRedisTemplate = binaryRedisTemplate;
+        this.listenerContainer = listenerContainer;
+        this.enabled = enabled;
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    @PostConstruct
+    public void subscribe() {
+        if (enabled) {
+            listenerContainer.addMessageListener(this, new ChannelTopic(INVALIDATION_CHANNEL));
+            log.info("Cross-node cache invalidation enabled, listening on channel {}", INVALIDATION_CHANNEL);
+        }
+    }
+
+    public void register(String cacheName, CacheService<?> localCache) {
+        localCaches.computeIfAbsent(cacheName, name -> new CopyOnWriteArrayList<>()).add(localCache);
+    }
+
+    public void invalidate(String cacheName, String key) {
+        if (!enabled) {
+            return;
+        }
+        pendingKeys.compute(cacheName, (name, keys) -> {
+            if (keys == null) {
+                keys = new HashSet<>();
+            }
+            // A pending clear already covers every key of the cache.
+            if (!keys.contains(CLEAR_ALL)) {
+                keys.add(key);
+            }
+            return keys;
+        });
+    }
+
+    public void invalidateAll(String cacheName) {
+        if (!enabled) {
+            return;
+        }
+        pendingKeys.compute(cacheName, (name, keys) -> new HashSet<>(Set.of(CLEAR_ALL)));
+    }
+
+    @Scheduled(fixedDelayString = "${cache.invalidation.flush-interval-ms:50}")
+    public void flush() {
+        for (String cacheName : pendingKeys.keySet()) {
+            Set<String> keys = pendingKeys.remove(cacheName);
+            if (keys == null || keys.isEmpty()) {
+                continue;
+            }
+            List<String> batch = new ArrayList<>(Math.min(keys.size(), maxBatchSize));
+            for (String key : keys) {
+                batch.add(key);
+                if (batch.size() == maxBatchSize) {
+                    publish(cacheName, batch);
+                    batch.clear();
+                }
+            }
+            if (!batch.isEmpty()) {
+                publish(cacheName, batch);
+            }
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        try (DataInputStream input = new DataInputStream(new ByteArrayInputStream(message.getBody()))) {
+            if (nodeId.equals(input.readUTF())) {
+                return;
+            }
+            List<CacheService<?>> tiers = localCaches.get(input.readUTF());
+            if (tiers == null) {
+                return;
+            }
+            int count = input.readInt();
+            for (int i = 0; i < count; i++) {
+                String key = input.readUTF();
+                for (CacheService<?> localCache : tiers) {
+                    if (CLEAR_ALL.equals(key)) {
+                        localCache.clear();
+                    } else {
+                        localCache.evict(key);
+                    }
+                }
+            }
+        } catch (IOException ex) {
+            log.warn("Ignoring malformed cache invalidation message: {}", ex.getMessage());
+        }
+    }
+
+    private void publish(String cacheName, List<String> keys) {
+        try {
+            binaryRedisTemplate.convertAndSend(INVALIDATION_CHANNEL, encode(cacheName, keys));
+        } catch (RuntimeException ex) {
+            log.warn("Could not publish {} invalidations for cache {}: {}", keys.size(), cacheName, ex.getMessage());
+        }
+    }
+
+    private byte[] encode(String cacheName, List<String> keys) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream output = new DataOutputStream(bytes)) {
+            output.writeUTF(nodeId);
+            output.writeUTF(cacheName);
+            output.writeInt(keys.size());
+            for (String key : keys) {
+                output.writeUTF(key);
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return bytes.toByteArray();
+    }
+}
@@ -1,8 +1,16 @@
 package com.ady4k.todoistapi.service;
 
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+import java.util.function.Function;
+
 public interface CacheService<T> {
     void put(String key, T value);
+    void putAll(Map<String, T> entries, Duration ttl);
     T get(String key);
+    Map<String, T> getAll(Collection<String> keys);
+    T getOrLoad(String key, Function<String, ? extends T> loader, Duration ttl);
     void evict(String key);
     void clear();
 }
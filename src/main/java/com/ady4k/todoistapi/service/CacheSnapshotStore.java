@@ -0,0 +1,175 @@
+package com.ady4k.todoistapi.service;
+
+import com.ady4k.todoistapi.service.codec.CacheCodec;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Writes the hottest entries of each registered local cache to {@code <directory>/<cache>.snapshot} on shutdown and
+ * restores them when the cache is registered at startup, so a restarted node does not begin with a cold L1.
+ * Snapshots older than {@code maxAge} are ignored because invalidations sent while the node was down were missed.
+ */
+@Component
+public class CacheSnapshotStore {
+    private static final Logger log = LoggerFactory.getLogger(CacheSnapshotStore.class);
+    private static final int MAGIC = 0x4C31534E;
+    private static final short FORMAT_VERSION = 1;
+    // magic, format version, written-at millis, entry count
+    private static final int HEADER_BYTES = Integer.BYTES + Short.BYTES + Long.BYTES + Integer.BYTES;
+    // expires-at millis, key length, value length
+    private static final int ENTRY_HEADER_BYTES = Long.BYTES + Integer.BYTES + Integer.BYTES;
+
+    private final boolean enabled;
+    private final Path directory;
+    private final int maxEntries;
+    private final Duration maxAge;
+    private final Map<String, SnapshotRegion<?>> regions = new ConcurrentHashMap<>();
+
+    public CacheSnapshotStore(@Value("${cache.snapshot.enabled:false}") boolean enabled,
+                              @Value("${cache.snapshot.directory:cache-snapshot}") Path directory,
+                              @Value("${cache.snapshot.max-entries:10000}") int maxEntries,
+                              @Value("${cache.snapshot.max-age-seconds:300}") long maxAgeSeconds) {
+        this.enabled = enabled;
+        this.directory = directory;
+        this.maxEntries = maxEntries;
+        this.maxAge = Duration.ofSeconds(maxAgeSeconds);
+    }
+
+    public <T> void register(String cacheName, CaffeineCacheService<T> localCache, CacheCodec<T> codec) {
+        if (!enabled) {
+            return;
+        }
+        SnapshotRegion<T> region = new SnapshotRegion<>(localCache, codec);
+        regions.put(cacheName, region);
+        restore(cacheName, region);
+    }
+
+    @PreDestroy
+    public void saveAll() {
+        regions.forEach(this::save);
+    }
+
+    private <T> void restore(String cacheName, SnapshotRegion<T> region) {
+        Path file = snapshotFile(cacheName);
+        if (!Files.exists(file)) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC || buffer.getShort() != FORMAT_VERSION) {
+                log.warn("Ignoring cache snapshot {} with an unknown format", file);
+                return;
+            }
+            long now = System.currentTimeMillis();
+            long writtenAt = buffer.getLong();
+            if (now - writtenAt > maxAge.toMillis()) {
+                log.info("Ignoring cache snapshot {} written {} s ago", file, (now - writtenAt) / 1000);
+                return;
+            }
+            int count = buffer.getInt();
+            // Every entry takes at least its header, which bounds a count that a corrupt file could inflate.
+            if (count < 0 || count > buffer.remaining() / ENTRY_HEADER_BYTES) {
+                log.warn("Ignoring cache snapshot {} with an invalid entry count {}", file, count);
+                return;
+            }
+            // Nothing is restored until the whole file has been read, so a corrupt tail cannot leave half a snapshot behind.
+            List<RestoredEntry<T>> entries = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                long expiresAt = buffer.getLong();
+                int keyLength = buffer.getInt();
+                int valueLength = buffer.getInt();
+                if (keyLength < 0 || valueLength < 0 || (long) keyLength + valueLength > buffer.remaining()) {
+                    log.warn("Ignoring cache snapshot {} with an invalid entry length", file);
+                    return;
+                }
+                byte[] key = new byte[keyLength];
+                byte[] value = new byte[valueLength];
+                buffer.get(key).get(value);
+                T decoded = region.codec().decode(value);
+                if (expiresAt > now && decoded != null) {
+                    entries.add(new RestoredEntry<>(new String(key, StandardCharsets.UTF_8), decoded, Duration.ofMillis(expiresAt - now)));
+                }
+            }
+            entries.forEach(entry -> region.localCache().put(entry.key(), entry.value(), entry.ttl()));
+            log.info("Restored {} of {} entries of cache {} from {}", entries.size(), count, cacheName, file);
+        } catch (IOException | RuntimeException ex) {
+            // Covers truncated files and values the codec can no longer decode; a bad snapshot must never stop startup.
+            log.warn("Could not read cache snapshot {}: {}", file, ex.toString());
+        } finally {
+            deleteQuietly(file);
+        }
+    }
+
+    private <T> void save(String cacheName, SnapshotRegion<T> region) {
+        long now = System.currentTimeMillis();
+        List<byte[]> keys = new ArrayList<>();
+        List<byte[]> values = new ArrayList<>();
+        List<Long> expiries = new ArrayList<>();
+        long size = HEADER_BYTES;
+        for (CaffeineCacheService.HotEntry<T> entry : region.localCache().hottest(maxEntries)) {
+            byte[] key = entry.key().getBytes(StandardCharsets.UTF_8);
+            byte[] value = region.codec().encode(entry.value());
+            keys.add(key);
+            values.add(value);
+            expiries.add(now + entry.remainingTtl().toMillis());
+            size += ENTRY_HEADER_BYTES + key.length + value.length;
+        }
+
+        Path file = snapshotFile(cacheName);
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            Files.createDirectories(directory);
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+                buffer.putInt(MAGIC).putShort(FORMAT_VERSION).putLong(now).putInt(keys.size());
+                for (int i = 0; i < keys.size(); i++) {
+                    buffer.putLong(expiries.get(i)).putInt(keys.get(i).length).putInt(values.get(i).length);
+                    buffer.put(keys.get(i)).put(values.get(i));
+                }
+                buffer.force();
+            }
+            // Readers only ever see a complete snapshot.
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.info("Wrote {} entries of cache {} to {}", keys.size(), cacheName, file);
+        } catch (IOException ex) {
+            log.warn("Could not write cache snapshot {}: {}", file, ex.getMessage());
+            deleteQuietly(temporary);
+        }
+    }
+
+    private Path snapshotFile(String cacheName) {
+        return directory.resolve(cacheName + ".snapshot");
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException ex) {
+            log.debug("Could not delete {}: {}", file, ex.getMessage());
+        }
+    }
+
+    private record SnapshotRegion<T>(CaffeineCacheService<T> localCache, CacheCodec<T> codec) {
+    }
+
+    private record RestoredEntry<T>(String key, T value, Duration ttl) {
+    }
+}
@@ -2,29 +2,113 @@ package com.ady4k.todoistapi.service;
 
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
-import org.springframework.stereotype.Service;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.Policy;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 
-import java.util.concurrent.TimeUnit;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
 
-@Service
 public class CaffeineCacheService<T> implements CacheService<T> {
-    private final Cache<String, T> inMemoryCache;
+    private static final Duration DEFAULT_TTL = Duration.ofMinutes(5);
+    private static final long DEFAULT_MAXIMUM_SIZE = 10000;
+
+    private final Cache<String, TimedValue<T>> inMemoryCache;
+    private final Duration defaultTtl;
 
     public CaffeineCacheService() {
+        this(DEFAULT_TTL, DEFAULT_MAXIMUM_SIZE);
+    }
+
+    public CaffeineCacheService(Duration defaultTtl, long maximumSize) {
+        this.defaultTtl = defaultTtl;
+        this.inMemoryCache = Caffeine.newBuilder()
+                .expireAfter(new TimedValueExpiry<T>())
+                .maximumSize(maximumSize)
+                .recordStats()
+                .build();
+    }
+
+    public CaffeineCacheService(Duration defaultTtl, long maximumWeight, ToIntFunction<T> weigher) {
+        this.defaultTtl = defaultTtl;
         this.inMemoryCache = Caffeine.newBuilder()
-                .expireAfterWrite(5, TimeUnit.MINUTES)
-                .maximumSize(10000)
+                .expireAfter(new TimedValueExpiry<T>())
+                .maximumWeight(maximumWeight)
+                .<String, TimedValue<T>>weigher((key, timedValue) ->
+                        key.length() + (timedValue.value() == null ? 0 : weigher.applyAsInt(timedValue.value())))
+                .recordStats()
                 .build();
     }
 
     @Override
     public void put(String key, T value) {
-        inMemoryCache.put(key, value);
+        put(key, value, defaultTtl);
+    }
+
+    public void put(String key, T value, Duration ttl) {
+        if (ttl.isNegative() || ttl.isZero()) {
+            inMemoryCache.invalidate(key);
+            return;
+        }
+        inMemoryCache.put(key, new TimedValue<>(value, ttl.toNanos()));
+    }
+
+    public void putAbsent(String key, Duration ttl) {
+        if (ttl.isNegative() || ttl.isZero()) {
+            inMemoryCache.invalidate(key);
+            return;
+        }
+        inMemoryCache.put(key, new TimedValue<>(null, ttl.toNanos()));
+    }
+
+    public boolean isMarkedAbsent(String key) {
+        TimedValue<T> timedValue = inMemoryCache.getIfPresent(key);
+        return timedValue != null && timedValue.value() == null;
+    }
+
+    // Time the entry has left in this cache, or null when the key is not cached.
+    public Duration remainingTtl(String key) {
+        return inMemoryCache.policy().expireVariably()
+                .flatMap(expiration -> expiration.getExpiresAfter(key))
+                .orElse(null);
+    }
+
+    @Override
+    public void putAll(Map<String, T> entries, Duration ttl) {
+        Map<String, TimedValue<T>> timedEntries = new HashMap<>();
+        entries.forEach((key, value) -> timedEntries.put(key, new TimedValue<>(value, ttl.toNanos())));
+        inMemoryCache.putAll(timedEntries);
     }
 
     @Override
     public T get(String key) {
-        return inMemoryCache.getIfPresent(key);
+        return unwrap(inMemoryCache.getIfPresent(key));
+    }
+
+    @Override
+    public Map<String, T> getAll(Collection<String> keys) {
+        Map<String, T> found = new HashMap<>();
+        inMemoryCache.getAllPresent(keys).forEach((key, timedValue) -> {
+            if (timedValue.value() != null) {
+                found.put(key, timedValue.value());
+            }
+        });
+        return found;
+    }
+
+    @Override
+    public T getOrLoad(String key, Function<String, ? extends T> loader, Duration ttl) {
+        return unwrap(inMemoryCache.get(key, missingKey -> {
+            T value = loader.apply(missingKey);
+            return value == null ? null : new TimedValue<>(value, ttl.toNanos());
+        }));
     }
 
     @Override
@@ -36,4 +120,53 @@ public class CaffeineCacheService<T> implements CacheService<T> {
     public void clear() {
         inMemoryCache.invalidateAll();
     }
+
+    // Most frequently used live values first, each with the time it has left; absent markers are left out.
+    public List<HotEntry<T>> hottest(int limit) {
+        Map<String, TimedValue<T>> hottest = inMemoryCache.policy().eviction()
+                .map(eviction -> eviction.hottest(limit))
+                .orElse(Map.of());
+        Policy.VarExpiration<String, TimedValue<T>> expiration = inMemoryCache.policy().expireVariably().orElseThrow();
+        List<HotEntry<T>> entries = new ArrayList<>(hottest.size());
+        hottest.forEach((key, timedValue) -> {
+            if (timedValue.value() != null) {
+                expiration.getExpiresAfter(key)
+                        .ifPresent(remainingTtl -> entries.add(new HotEntry<>(key, timedValue.value(), remainingTtl)));
+            }
+        });
+        return entries;
+    }
+
+    public void bindMetrics(MeterRegistry meterRegistry, String cacheName) {
+        CaffeineCacheMetrics.monitor(meterRegistry, inMemoryCache, cacheName);
+    }
+
+    private static <T> T unwrap(TimedValue<T> timedValue) {
+        return timedValue == null ? null : timedValue.value();
+    }
+
+    public record HotEntry<T>(String key, T value, Duration remainingTtl) {
+    }
+
+    // A null value marks a key that is known not to exist.
+    private record TimedValue<T>(T value, long ttlNanos) {
+    }
+
+    // Every write carries its own TTL; reads leave the remaining time untouched.
+    private static class TimedValueExpiry<T> implements Expiry<String, TimedValue<T>> {
+        @Override
+        public long expireAfterCreate(String key, TimedValue<T> value, long currentTime) {
+            return value.ttlNanos();
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, TimedValue<T> value, long currentTime, long currentDuration) {
+            return value.ttlNanos();
+        }
+
+        @Override
+        public long expireAfterRead(String key, TimedValue<T> value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
 }
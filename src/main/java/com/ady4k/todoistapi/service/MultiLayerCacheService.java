@@ -1,52 +1,548 @@
 package com.ady4k.todoistapi.service;
 
-import org.springframework.stereotype.Service;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Function;
 
-@Service
-public class MultiLayerCacheService<T> implements CacheService<T> {
+public class MultiLayerCacheService<T> implements CacheService<T>, AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(MultiLayerCacheService.class);
+    private static final long LOCK_POLL_MILLIS = 50;
+    private static final int REFRESH_QUEUE_CAPACITY = 256;
+    private static final int WRITE_BEHIND_BATCH_SIZE = 500;
+    private static final int WRITE_VERSION_STRIPES = 1024;
+
+    private final String name;
     private final CaffeineCacheService<T> caffeineCacheService;
+    // Optional second local tier kept outside the heap; null when the region has none.
+    private final OffHeapCacheService<T> offHeapCacheService;
     private final RedisCacheService<T> redisCacheService;
+    private final CacheInvalidationBus invalidationBus;
+    private final Settings settings;
+    private final Executor refreshExecutor;
+    private final ScheduledExecutorService writeBehindScheduler;
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private final Map<String, CompletableFuture<T>> inFlightLoads = new ConcurrentHashMap<>();
+    private final Set<String> inFlightRefreshes = ConcurrentHashMap.newKeySet();
+    // Latest pending L2 write per key; a newer write for the same key replaces the queued one.
+    private final Map<String, PendingWrite<T>> pendingWrites = new ConcurrentHashMap<>();
+    // Bumped by every put or evict of a key in the stripe. A load remembers the version it started from and its value is
+    // dropped once that has moved on; sharing stripes keeps this bounded, a collision only drops a write needlessly.
+    private final AtomicLongArray writeVersions = new AtomicLongArray(WRITE_VERSION_STRIPES);
+    // Keys whose loaded value is being stored or sent to Redis; a put or evict of such a key waits so its own write lands last.
+    private final Map<String, CountDownLatch> sendingWrites = new ConcurrentHashMap<>();
+
+    public MultiLayerCacheService(String name,
+                                  CaffeineCacheService<T> caffeineCacheService,
+                                  OffHeapCacheService<T> offHeapCacheService,
+                                  RedisCacheService<T> redisCacheService,
+                                  CacheInvalidationBus invalidationBus,
+                                  Settings settings) {
+        this(name, caffeineCacheService, offHeapCacheService, redisCacheService, invalidationBus, settings,
+                newRefreshExecutor(name), newWriteBehindScheduler(name));
+    }
 
-    public MultiLayerCacheService(CaffeineCacheService<T> caffeineCacheService, RedisCacheService<T> redisCacheService) {
+    MultiLayerCacheService(String name,
+                           CaffeineCacheService<T> caffeineCacheService,
+                           OffHeapCacheService<T> offHeapCacheService,
+                           RedisCacheService<T> redisCacheService,
+                           CacheInvalidationBus invalidationBus,
+                           Settings settings,
+                           Executor refreshExecutor,
+                           ScheduledExecutorService writeBehindScheduler) {
+        this.name = name;
         this.caffeineCacheService = caffeineCacheService;
+        this.offHeapCacheService = offHeapCacheService;
         this.redisCacheService = redisCacheService;
+        this.invalidationBus = invalidationBus;
+        this.settings = settings;
+        this.refreshExecutor = refreshExecutor;
+        this.writeBehindScheduler = writeBehindScheduler;
+        // Remote invalidations must empty the off-heap tier first, or a heap miss could promote its stale copy back.
+        if (offHeapCacheService != null) {
+            invalidationBus.register(name, offHeapCacheService);
+        }
+        invalidationBus.register(name, caffeineCacheService);
+        if (writeBehindScheduler != null) {
+            long intervalMillis = settings.writeBehindInterval().toMillis();
+            writeBehindScheduler.scheduleWithFixedDelay(this::flushWrites, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public record Settings(Duration ttl,
+                           Duration negativeTtl,
+                           Duration lockTimeout,
+                           double refreshAheadRatio,
+                           int writeBehindCapacity,
+                           Duration writeBehindInterval) {
     }
 
     @Override
     public void put(String key, T value) {
-        caffeineCacheService.put(key, value);
-        redisCacheService.put(key, value);
+        put(key, value, settings.ttl());
     }
 
     public void put(String key, T value, Duration ttl) {
-        caffeineCacheService.put(key, value);
+        supersedeLoads(key);
+        putLocal(key, value, ttl);
         redisCacheService.put(key, value, ttl);
+        invalidationBus.invalidate(name, key);
+    }
+
+    @Override
+    public void putAll(Map<String, T> entries, Duration ttl) {
+        entries.keySet().forEach(this::supersedeLoads);
+        caffeineCacheService.putAll(entries, ttl);
+        if (offHeapCacheService != null) {
+            offHeapCacheService.putAll(entries, ttl);
+        }
+        redisCacheService.putAll(entries, ttl);
+        entries.keySet().forEach(key -> invalidationBus.invalidate(name, key));
     }
 
     @Override
     public T get(String key) {
-        T value = caffeineCacheService.get(key);
-        if (value == null) {
-            value = redisCacheService.get(key);
-            if (value == null) {
+        T value = getLocal(key);
+        if (value == null && !caffeineCacheService.isMarkedAbsent(key)) {
+            RedisCacheService.CachedValue<T> cached = redisCacheService.getWithTtl(key);
+            if (cached == null) {
                 return null;
             }
-            caffeineCacheService.put(key, value);
+            backFill(key, cached);
+            value = cached.value();
         }
         return value;
     }
 
+    @Override
+    public Map<String, T> getAll(Collection<String> keys) {
+        Map<String, T> found = new LinkedHashMap<>(caffeineCacheService.getAll(keys));
+        if (found.size() == keys.size()) {
+            return found;
+        }
+        List<String> misses = new ArrayList<>();
+        for (String key : keys) {
+            if (found.containsKey(key) || caffeineCacheService.isMarkedAbsent(key)) {
+                continue;
+            }
+            T value = getLocal(key);
+            if (value != null) {
+                found.put(key, value);
+            } else {
+                misses.add(key);
+            }
+        }
+        if (misses.isEmpty()) {
+            return found;
+        }
+        redisCacheService.getAllWithTtl(misses).forEach((key, cached) -> {
+            backFill(key, cached);
+            if (!cached.isAbsent()) {
+                found.put(key, cached.value());
+            }
+        });
+        return found;
+    }
+
+    public T getOrLoad(String key, Function<String, ? extends T> loader) {
+        return getOrLoad(key, loader, settings.ttl());
+    }
+
+    @Override
+    public T getOrLoad(String key, Function<String, ? extends T> loader, Duration ttl) {
+        T value = getLocal(key);
+        if (value != null) {
+            // L1 expires together with L2, so a key that keeps hitting L1 is refreshed from here or never early at all.
+            Duration remainingTtl = caffeineCacheService.remainingTtl(key);
+            if (remainingTtl != null) {
+                refreshIfExpiring(key, remainingTtl.toMillis(), loader, ttl);
+            }
+            return value;
+        }
+        if (caffeineCacheService.isMarkedAbsent(key)) {
+            return null;
+        }
+
+        CompletableFuture<T> load = new CompletableFuture<>();
+        CompletableFuture<T> inFlight = inFlightLoads.putIfAbsent(key, load);
+        if (inFlight != null) {
+            return await(inFlight);
+        }
+        try {
+            value = loadThroughRedis(key, loader, ttl);
+            load.complete(value);
+            return value;
+        } catch (RuntimeException ex) {
+            load.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            inFlightLoads.remove(key, load);
+        }
+    }
+
     @Override
     public void evict(String key) {
+        supersedeLoads(key);
+        if (offHeapCacheService != null) {
+            offHeapCacheService.evict(key);
+        }
         caffeineCacheService.evict(key);
         redisCacheService.evict(key);
+        invalidationBus.invalidate(name, key);
     }
 
     @Override
     public void clear() {
+        for (int stripe = 0; stripe < WRITE_VERSION_STRIPES; stripe++) {
+            writeVersions.incrementAndGet(stripe);
+        }
+        pendingWrites.clear();
+        sendingWrites.values().forEach(this::awaitSent);
+        if (offHeapCacheService != null) {
+            offHeapCacheService.clear();
+        }
         caffeineCacheService.clear();
         redisCacheService.clear();
+        invalidationBus.invalidateAll(name);
+    }
+
+    @Override
+    public void close() {
+        if (writeBehindScheduler != null) {
+            writeBehindScheduler.shutdown();
+        }
+        flushWrites();
+        if (refreshExecutor instanceof ExecutorService executorService) {
+            executorService.shutdownNow();
+        }
+        if (offHeapCacheService != null) {
+            offHeapCacheService.close();
+        }
+    }
+
+    void flushWrites() {
+        if (pendingWrites.isEmpty()) {
+            return;
+        }
+        List<String> keys = List.copyOf(pendingWrites.keySet());
+        for (int from = 0; from < keys.size(); from += WRITE_BEHIND_BATCH_SIZE) {
+            flushBatch(keys.subList(from, Math.min(from + WRITE_BEHIND_BATCH_SIZE, keys.size())));
+        }
+    }
+
+    private void flushBatch(List<String> keys) {
+        CountDownLatch sent = new CountDownLatch(1);
+        List<RedisCacheService.Write<T>> batch = new ArrayList<>(keys.size());
+        try {
+            for (String key : keys) {
+                if (sendingWrites.putIfAbsent(key, sent) != null) {
+                    // A load is storing this key right now; whatever is still queued goes with the next flush.
+                    continue;
+                }
+                PendingWrite<T> pending = pendingWrites.remove(key);
+                if (pending != null && pending.version() == writeVersion(key)) {
+                    batch.add(pending.write());
+                } else {
+                    sendingWrites.remove(key, sent);
+                }
+            }
+            writeBatch(batch);
+        } finally {
+            batch.forEach(write -> sendingWrites.remove(write.key(), sent));
+            sent.countDown();
+        }
+    }
+
+    private void writeBatch(List<RedisCacheService.Write<T>> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            if (!redisCacheService.writeAll(batch)) {
+                log.debug("Redis is unavailable, dropped write-behind of {} entries to cache {}", batch.size(), name);
+                return;
+            }
+            // Other nodes are told only once the value is in Redis, so they never re-read an empty L2.
+            batch.forEach(write -> invalidationBus.invalidate(name, write.key()));
+        } catch (RuntimeException ex) {
+            log.warn("Write-behind of {} entries to cache {} failed: {}", batch.size(), name, ex.getMessage());
+        }
+    }
+
+    private T loadThroughRedis(String key, Function<String, ? extends T> loader, Duration ttl) {
+        RedisCacheService.CachedValue<T> stored = getFromRedis(key, loader, ttl);
+        if (stored != null) {
+            return stored.value();
+        }
+
+        String owner = nodeId + ":" + Thread.currentThread().threadId();
+        // While another node loads this key, wait for its result; if it releases the lock without one (its load failed),
+        // take the lock over on the next poll instead of sleeping out the whole timeout.
+        long deadline = System.nanoTime() + settings.lockTimeout().toNanos();
+        while (!redisCacheService.tryLock(key, owner, settings.lockTimeout())) {
+            if (System.nanoTime() >= deadline) {
+                return loadAndQueue(key, loader, ttl);
+            }
+            try {
+                Thread.sleep(LOCK_POLL_MILLIS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return loadAndQueue(key, loader, ttl);
+            }
+            RedisCacheService.CachedValue<T> cached = redisCacheService.getWithTtl(key);
+            if (cached != null) {
+                backFill(key, cached);
+                return cached.value();
+            }
+        }
+        return loadAndUnlock(key, loader, ttl, owner);
+    }
+
+    // The lock holder writes L2 itself, in the round trip that releases the lock: queueing the write would free the
+    // lock while L2 is still empty and let the next node load the key again.
+    private T loadAndUnlock(String key, Function<String, ? extends T> loader, Duration ttl, String owner) {
+        long version = writeVersion(key);
+        boolean unlocked = false;
+        try {
+            T value = loader.apply(key);
+            CountDownLatch sent = beginSend(key);
+            try {
+                pendingWrites.remove(key);
+                RedisCacheService.Write<T> write = version == writeVersion(key) ? storeLocal(key, value, ttl) : null;
+                if (write != null && redisCacheService.writeAndUnlock(write, owner)) {
+                    unlocked = true;
+                    invalidationBus.invalidate(name, key);
+                }
+            } finally {
+                sendingWrites.remove(key, sent);
+                sent.countDown();
+            }
+            return value;
+        } finally {
+            if (!unlocked) {
+                redisCacheService.unlock(key, owner);
+            }
+        }
+    }
+
+    private RedisCacheService.CachedValue<T> getFromRedis(String key, Function<String, ? extends T> loader, Duration ttl) {
+        RedisCacheService.CachedValue<T> cached = redisCacheService.getWithTtl(key);
+        if (cached == null) {
+            return null;
+        }
+        backFill(key, cached);
+        if (!cached.isAbsent()) {
+            refreshIfExpiring(key, cached.remainingMillis(), loader, ttl);
+        }
+        return cached;
+    }
+
+    private void refreshIfExpiring(String key, long remainingMillis, Function<String, ? extends T> loader, Duration ttl) {
+        if (remainingMillis >= 0 && remainingMillis < ttl.toMillis() * settings.refreshAheadRatio()) {
+            refreshAhead(key, loader, ttl);
+        }
+    }
+
+    // L1 keeps an entry only as long as Redis does, so it never serves a value L2 has already dropped.
+    private void backFill(String key, RedisCacheService.CachedValue<T> cached) {
+        if (cached.isAbsent()) {
+            putAbsentLocal(key, cached.remainingMillis() < 0 ? settings.negativeTtl() : Duration.ofMillis(cached.remainingMillis()));
+        } else if (cached.remainingMillis() < 0) {
+            putLocal(key, cached.value(), settings.ttl());
+        } else {
+            putLocal(key, cached.value(), Duration.ofMillis(cached.remainingMillis()));
+        }
+    }
+
+    // The off-heap tier holds everything the heap tier does and more; its hits are promoted back onto the heap.
+    private T getLocal(String key) {
+        T value = caffeineCacheService.get(key);
+        if (value != null || offHeapCacheService == null || caffeineCacheService.isMarkedAbsent(key)) {
+            return value;
+        }
+        OffHeapCacheService.Entry<T> entry = offHeapCacheService.getWithTtl(key);
+        if (entry == null) {
+            return null;
+        }
+        caffeineCacheService.put(key, entry.value(), entry.remainingTtl());
+        return entry.value();
+    }
+
+    private void putLocal(String key, T value, Duration ttl) {
+        caffeineCacheService.put(key, value, ttl);
+        if (offHeapCacheService != null) {
+            offHeapCacheService.put(key, value, ttl);
+        }
+    }
+
+    private void putAbsentLocal(String key, Duration ttl) {
+        caffeineCacheService.putAbsent(key, ttl);
+        if (offHeapCacheService != null) {
+            offHeapCacheService.evict(key);
+        }
+    }
+
+    private void refreshAhead(String key, Function<String, ? extends T> loader, Duration ttl) {
+        if (!inFlightRefreshes.add(key)) {
+            return;
+        }
+        try {
+            refreshExecutor.execute(() -> {
+                String owner = nodeId + ":refresh";
+                try {
+                    if (redisCacheService.tryLock(key, owner, settings.lockTimeout())) {
+                        try {
+                            loadAndQueue(key, loader, ttl);
+                        } finally {
+                            redisCacheService.unlock(key, owner);
+                        }
+                    }
+                } catch (RuntimeException ex) {
+                    log.debug("Refresh-ahead of {} in cache {} failed: {}", key, name, ex.getMessage());
+                } finally {
+                    inFlightRefreshes.remove(key);
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            inFlightRefreshes.remove(key);
+        }
+    }
+
+    // Refreshes and loads that gave up waiting for the lock reach Redis through the write-behind queue; nobody waits on them.
+    private T loadAndQueue(String key, Function<String, ? extends T> loader, Duration ttl) {
+        long version = writeVersion(key);
+        T value = loader.apply(key);
+        // Marked as sending like the lock holder's store, so a put that misses the version check waits for this L1 store.
+        CountDownLatch sent = beginSend(key);
+        try {
+            if (version == writeVersion(key)) {
+                RedisCacheService.Write<T> write = storeLocal(key, value, ttl);
+                if (write != null) {
+                    writeBehind(new PendingWrite<>(write, version));
+                }
+            }
+        } finally {
+            sendingWrites.remove(key, sent);
+            sent.countDown();
+        }
+        return value;
+    }
+
+    // Puts a loaded value into L1 and returns the matching L2 write, or null when nothing should be cached.
+    private RedisCacheService.Write<T> storeLocal(String key, T value, Duration ttl) {
+        if (value != null) {
+            putLocal(key, value, ttl);
+            return new RedisCacheService.Write<>(key, value, ttl);
+        }
+        if (settings.negativeTtl().isPositive()) {
+            // Remember the miss briefly so repeated lookups of unknown keys stay off the loader; put() replaces it.
+            putAbsentLocal(key, settings.negativeTtl());
+            return new RedisCacheService.Write<>(key, null, settings.negativeTtl());
+        }
+        return null;
+    }
+
+    private void writeBehind(PendingWrite<T> pending) {
+        String key = pending.write().key();
+        if (pendingWrites.size() >= settings.writeBehindCapacity() && !pendingWrites.containsKey(key)) {
+            // The value is already in L1; under sustained overload L2 simply misses it and the next node loads it again.
+            log.debug("Write-behind queue of cache {} is full, skipping L2 write of {}", name, key);
+            return;
+        }
+        pendingWrites.put(key, pending);
+    }
+
+    // A put or evict wins over every load of the key that started before it, including one being sent to Redis right now.
+    private void supersedeLoads(String key) {
+        writeVersions.incrementAndGet(stripe(key));
+        pendingWrites.remove(key);
+        CountDownLatch sending = sendingWrites.get(key);
+        if (sending != null) {
+            awaitSent(sending);
+        }
+    }
+
+    // Marks the key as being sent, first waiting out a send of it that is already in flight.
+    private CountDownLatch beginSend(String key) {
+        CountDownLatch sent = new CountDownLatch(1);
+        CountDownLatch inFlight;
+        while ((inFlight = sendingWrites.putIfAbsent(key, sent)) != null) {
+            awaitSent(inFlight);
+        }
+        return sent;
+    }
+
+    private void awaitSent(CountDownLatch sent) {
+        try {
+            // A send is bounded by the Redis command timeout; the lock timeout only guards against waiting forever.
+            sent.await(settings.lockTimeout().toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private long writeVersion(String key) {
+        return writeVersions.get(stripe(key));
+    }
+
+    private static int stripe(String key) {
+        int hash = key.hashCode();
+        return (hash ^ (hash >>> 16)) & (WRITE_VERSION_STRIPES - 1);
+    }
+
+    private record PendingWrite<T>(RedisCacheService.Write<T> write, long version) {
+    }
+
+    private static <T> T await(CompletableFuture<T> load) {
+        try {
+            return load.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw ex;
+        }
+    }
+
+    private static ScheduledExecutorService newWriteBehindScheduler(String name) {
+        return Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "cache-write-behind-" + name);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private static ExecutorService newRefreshExecutor(String name) {
+        AtomicInteger threadCount = new AtomicInteger();
+        // Refreshes are best effort: when the queue is full the entry simply expires and is loaded on demand.
+        return new ThreadPoolExecutor(1, 2, 30, TimeUnit.SECONDS, new ArrayBlockingQueue<>(REFRESH_QUEUE_CAPACITY),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "cache-refresh-" + name + "-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
     }
 }
@@ -0,0 +1,384 @@
+package com.ady4k.todoistapi.service;
+
+import com.ady4k.todoistapi.service.codec.CacheCodec;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Stores encoded values outside the Java heap so a large working set does not add to GC work. The capacity is split
+ * into independently locked partitions; each partition appends records to a ring of slabs and keeps an open-addressing
+ * index of {@code (hash << 32) | (address + 1)} longs, also off-heap. When a slab is reused every record still in it is
+ * dropped, so eviction is FIFO by slab. Absent markers are not stored here.
+ */
+public class OffHeapCacheService<T> implements CacheService<T>, AutoCloseable {
+    private static final int PARTITIONS = 16;
+    private static final int SLABS_PER_PARTITION = 16;
+    // Index buckets are sized for records of this many bytes; smaller records hit the load limit before the slabs fill.
+    private static final int ESTIMATED_RECORD_BYTES = 64;
+    private static final double MAX_LOAD_FACTOR = 0.75;
+
+    // Record layout: hash, key length, value length, expiry (System.nanoTime), key bytes, value bytes.
+    private static final long HASH_OFFSET = 0;
+    private static final long KEY_LENGTH_OFFSET = 4;
+    private static final long VALUE_LENGTH_OFFSET = 8;
+    private static final long EXPIRES_AT_OFFSET = 12;
+    private static final int RECORD_HEADER_BYTES = 20;
+
+    private final CacheCodec<T> codec;
+    private final Duration defaultTtl;
+    private final long capacityBytes;
+    private final Arena arena = Arena.ofShared();
+    private final Partition[] partitions = new Partition[PARTITIONS];
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final AtomicLong allocatedBytes = new AtomicLong();
+
+    public OffHeapCacheService(CacheCodec<T> codec, Duration defaultTtl, long capacityBytes) {
+        long partitionBytes = capacityBytes / PARTITIONS;
+        if (partitionBytes < SLABS_PER_PARTITION * 1024L || partitionBytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Off-heap capacity must be between " + PARTITIONS * SLABS_PER_PARTITION
+                    + " KiB and " + PARTITIONS * 2L + " GiB, was " + capacityBytes + " bytes");
+        }
+        this.codec = codec;
+        this.defaultTtl = defaultTtl;
+        this.capacityBytes = capacityBytes;
+        int slabSize = (int) (partitionBytes / SLABS_PER_PARTITION);
+        int indexBuckets = Integer.highestOneBit((int) Math.max(16, partitionBytes / ESTIMATED_RECORD_BYTES * 2 - 1));
+        for (int i = 0; i < PARTITIONS; i++) {
+            partitions[i] = new Partition(arena, slabSize, indexBuckets, evictions, allocatedBytes);
+        }
+    }
+
+    @Override
+    public void put(String key, T value) {
+        put(key, value, defaultTtl);
+    }
+
+    public void put(String key, T value, Duration ttl) {
+        int hash = hash(key);
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        if (ttl.isNegative() || ttl.isZero()) {
+            partition(hash).remove(hash, keyBytes);
+            return;
+        }
+        partition(hash).write(hash, keyBytes, codec.encode(value), System.nanoTime() + ttl.toNanos());
+    }
+
+    @Override
+    public void putAll(Map<String, T> entries, Duration ttl) {
+        entries.forEach((key, value) -> put(key, value, ttl));
+    }
+
+    @Override
+    public T get(String key) {
+        Entry<T> entry = getWithTtl(key);
+        return entry == null ? null : entry.value();
+    }
+
+    public Entry<T> getWithTtl(String key) {
+        int hash = hash(key);
+        RawEntry raw = partition(hash).read(hash, key.getBytes(StandardCharsets.UTF_8));
+        T value = raw == null ? null : codec.decode(raw.value());
+        if (value == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return new Entry<>(value, Duration.ofNanos(raw.remainingNanos()));
+    }
+
+    @Override
+    public Map<String, T> getAll(Collection<String> keys) {
+        Map<String, T> found = new HashMap<>();
+        for (String key : keys) {
+            T value = get(key);
+            if (value != null) {
+                found.put(key, value);
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public T getOrLoad(String key, Function<String, ? extends T> loader, Duration ttl) {
+        T value = get(key);
+        if (value == null) {
+            value = loader.apply(key);
+            if (value != null) {
+                put(key, value, ttl);
+            }
+        }
+        return value;
+    }
+
+    @Override
+    public void evict(String key) {
+        int hash = hash(key);
+        partition(hash).remove(hash, key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public void clear() {
+        for (Partition partition : partitions) {
+            partition.clear();
+        }
+    }
+
+    public long size() {
+        long size = 0;
+        for (Partition partition : partitions) {
+            size += partition.size();
+        }
+        return size;
+    }
+
+    public void bindMetrics(MeterRegistry meterRegistry, String cacheName) {
+        FunctionCounter.builder("cache.offheap.gets", hits, LongAdder::sum)
+                .tags("cache", cacheName, "result", "hit")
+                .register(meterRegistry);
+        FunctionCounter.builder("cache.offheap.gets", misses, LongAdder::sum)
+                .tags("cache", cacheName, "result", "miss")
+                .register(meterRegistry);
+        FunctionCounter.builder("cache.offheap.evictions", evictions, LongAdder::sum)
+                .tag("cache", cacheName)
+                .register(meterRegistry);
+        Gauge.builder("cache.offheap.size", this, OffHeapCacheService::size)
+                .tag("cache", cacheName)
+                .register(meterRegistry);
+        Gauge.builder("cache.offheap.memory.used", allocatedBytes, AtomicLong::get)
+                .tag("cache", cacheName)
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("cache.offheap.memory.capacity", () -> capacityBytes)
+                .tag("cache", cacheName)
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void close() {
+        for (Partition partition : partitions) {
+            partition.close();
+        }
+        arena.close();
+    }
+
+    private Partition partition(int hash) {
+        return partitions[(hash >>> 28) & (PARTITIONS - 1)];
+    }
+
+    // Spreads String.hashCode so both the partition (high bits) and the bucket (low bits) see well-mixed bits.
+    private static int hash(String key) {
+        int hash = key.hashCode() * 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+
+    public record Entry<T>(T value, Duration remainingTtl) {
+    }
+
+    private record RawEntry(byte[] value, long remainingNanos) {
+    }
+
+    private static final class Partition {
+        private final Arena arena;
+        private final LongAdder evictions;
+        private final AtomicLong allocatedBytes;
+        private final int slabSize;
+        private final MemorySegment[] slabs = new MemorySegment[SLABS_PER_PARTITION];
+        private final int[] slabFill = new int[SLABS_PER_PARTITION];
+        private final MemorySegment index;
+        private final int indexMask;
+        private final int maxEntries;
+
+        private int currentSlab;
+        private int size;
+        private boolean closed;
+
+        Partition(Arena arena, int slabSize, int indexBuckets, LongAdder evictions, AtomicLong allocatedBytes) {
+            this.arena = arena;
+            this.evictions = evictions;
+            this.allocatedBytes = allocatedBytes;
+            this.slabSize = slabSize;
+            this.index = arena.allocate((long) indexBuckets * Long.BYTES, Long.BYTES);
+            this.indexMask = indexBuckets - 1;
+            this.maxEntries = (int) (indexBuckets * MAX_LOAD_FACTOR);
+            allocatedBytes.addAndGet(index.byteSize());
+        }
+
+        synchronized void write(int hash, byte[] key, byte[] value, long expiresAt) {
+            if (closed) {
+                return;
+            }
+            remove(hash, key);
+            int recordBytes = RECORD_HEADER_BYTES + key.length + value.length;
+            if (recordBytes > slabSize) {
+                return;
+            }
+            while (size >= maxEntries || slabFill[currentSlab] + recordBytes > slabSize) {
+                advanceSlab();
+            }
+            MemorySegment slab = slab(currentSlab);
+            long offset = slabFill[currentSlab];
+            slab.set(ValueLayout.JAVA_INT_UNALIGNED, offset + HASH_OFFSET, hash);
+            slab.set(ValueLayout.JAVA_INT_UNALIGNED, offset + KEY_LENGTH_OFFSET, key.length);
+            slab.set(ValueLayout.JAVA_INT_UNALIGNED, offset + VALUE_LENGTH_OFFSET, value.length);
+            slab.set(ValueLayout.JAVA_LONG_UNALIGNED, offset + EXPIRES_AT_OFFSET, expiresAt);
+            MemorySegment.copy(key, 0, slab, ValueLayout.JAVA_BYTE, offset + RECORD_HEADER_BYTES, key.length);
+            MemorySegment.copy(value, 0, slab, ValueLayout.JAVA_BYTE, offset + RECORD_HEADER_BYTES + key.length, value.length);
+            slabFill[currentSlab] += recordBytes;
+
+            int bucket = hash & indexMask;
+            while (bucketEntry(bucket) != 0) {
+                bucket = (bucket + 1) & indexMask;
+            }
+            long address = (long) currentSlab * slabSize + offset;
+            index.setAtIndex(ValueLayout.JAVA_LONG, bucket, ((long) hash << 32) | (address + 1));
+            size++;
+        }
+
+        synchronized RawEntry read(int hash, byte[] key) {
+            if (closed) {
+                return null;
+            }
+            int bucket = find(hash, key);
+            if (bucket < 0) {
+                return null;
+            }
+            long address = address(bucketEntry(bucket));
+            MemorySegment slab = slabs[(int) (address / slabSize)];
+            long offset = address % slabSize;
+            long remainingNanos = slab.get(ValueLayout.JAVA_LONG_UNALIGNED, offset + EXPIRES_AT_OFFSET) - System.nanoTime();
+            if (remainingNanos <= 0) {
+                removeBucket(bucket);
+                return null;
+            }
+            byte[] value = new byte[slab.get(ValueLayout.JAVA_INT_UNALIGNED, offset + VALUE_LENGTH_OFFSET)];
+            MemorySegment.copy(slab, ValueLayout.JAVA_BYTE, offset + RECORD_HEADER_BYTES + key.length, value, 0, value.length);
+            return new RawEntry(value, remainingNanos);
+        }
+
+        synchronized void remove(int hash, byte[] key) {
+            if (closed) {
+                return;
+            }
+            int bucket = find(hash, key);
+            if (bucket >= 0) {
+                removeBucket(bucket);
+            }
+        }
+
+        synchronized void clear() {
+            if (closed) {
+                return;
+            }
+            index.fill((byte) 0);
+            Arrays.fill(slabFill, 0);
+            currentSlab = 0;
+            size = 0;
+        }
+
+        synchronized int size() {
+            return size;
+        }
+
+        synchronized void close() {
+            closed = true;
+        }
+
+        private int find(int hash, byte[] key) {
+            int bucket = hash & indexMask;
+            long entry;
+            while ((entry = bucketEntry(bucket)) != 0) {
+                if ((int) (entry >>> 32) == hash && keyEquals(address(entry), key)) {
+                    return bucket;
+                }
+                bucket = (bucket + 1) & indexMask;
+            }
+            return -1;
+        }
+
+        private boolean keyEquals(long address, byte[] key) {
+            MemorySegment slab = slabs[(int) (address / slabSize)];
+            long offset = address % slabSize;
+            if (slab.get(ValueLayout.JAVA_INT_UNALIGNED, offset + KEY_LENGTH_OFFSET) != key.length) {
+                return false;
+            }
+            long keyStart = offset + RECORD_HEADER_BYTES;
+            return MemorySegment.mismatch(slab, keyStart, keyStart + key.length,
+                    MemorySegment.ofArray(key), 0, key.length) == -1;
+        }
+
+        // Moves the next slab to the front of the ring, dropping the index entries of every record it still holds.
+        private void advanceSlab() {
+            currentSlab = (currentSlab + 1) % SLABS_PER_PARTITION;
+            MemorySegment slab = slabs[currentSlab];
+            long offset = 0;
+            while (offset < slabFill[currentSlab]) {
+                int hash = slab.get(ValueLayout.JAVA_INT_UNALIGNED, offset + HASH_OFFSET);
+                long recordEntry = ((long) hash << 32) | ((long) currentSlab * slabSize + offset + 1);
+                int bucket = hash & indexMask;
+                long entry;
+                while ((entry = bucketEntry(bucket)) != 0) {
+                    if (entry == recordEntry) {
+                        removeBucket(bucket);
+                        evictions.increment();
+                        break;
+                    }
+                    bucket = (bucket + 1) & indexMask;
+                }
+                offset += RECORD_HEADER_BYTES + slab.get(ValueLayout.JAVA_INT_UNALIGNED, offset + KEY_LENGTH_OFFSET)
+                        + slab.get(ValueLayout.JAVA_INT_UNALIGNED, offset + VALUE_LENGTH_OFFSET);
+            }
+            slabFill[currentSlab] = 0;
+        }
+
+        // Backward-shift deletion keeps linear probing free of tombstones.
+        private void removeBucket(int bucket) {
+            int hole = bucket;
+            int next = (hole + 1) & indexMask;
+            long entry;
+            while ((entry = bucketEntry(next)) != 0) {
+                int home = (int) (entry >>> 32) & indexMask;
+                if (((next - home) & indexMask) >= ((next - hole) & indexMask)) {
+                    index.setAtIndex(ValueLayout.JAVA_LONG, hole, entry);
+                    hole = next;
+                }
+                next = (next + 1) & indexMask;
+            }
+            index.setAtIndex(ValueLayout.JAVA_LONG, hole, 0L);
+            size--;
+        }
+
+        private MemorySegment slab(int slabIndex) {
+            if (slabs[slabIndex] == null) {
+                slabs[slabIndex] = arena.allocate(slabSize, Long.BYTES);
+                allocatedBytes.addAndGet(slabSize);
+            }
+            return slabs[slabIndex];
+        }
+
+        private long bucketEntry(int bucket) {
+            return index.getAtIndex(ValueLayout.JAVA_LONG, bucket);
+        }
+
+        private long address(long entry) {
+            return (entry & 0xFFFFFFFFL) - 1;
+        }
+    }
+}
@@ -1,39 +1,311 @@
 package com.ady4k.todoistapi.service;
 
+import com.ady4k.todoistapi.service.codec.CacheCodec;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.RedisTemplate;
-import org.springframework.stereotype.Service;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.data.redis.serializer.RedisSerializer;
 
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
 
-@Service
 public class RedisCacheService<T> implements CacheService<T> {
-    private final RedisTemplate<String, T> redisTemplate;
+    // Returns the stored value while it has more than ARGV[2] ms left, otherwise replaces it with ARGV[1].
+    private static final RedisScript<byte[]> GET_OR_PUT_SCRIPT = new DefaultRedisScript<>("""
+            local remaining = redis.call('PTTL', KEYS[1])
+            if remaining > tonumber(ARGV[2]) then
+                return redis.call('GET', KEYS[1])
+            end
+            redis.call('SET', KEYS[1], ARGV[1], 'PX', ARGV[3])
+            return ARGV[1]
+            """, byte[].class);
+    private static final RedisScript<Long> UNLOCK_SCRIPT = new DefaultRedisScript<>("""
+            if redis.call('GET', KEYS[1]) == ARGV[1] then
+                return redis.call('DEL', KEYS[1])
+            end
+            return 0
+            """, Long.class);
+    // Takes the value of KEYS[1] and leaves it under KEYS[2] for ARGV[1] ms, so no other caller sees the key in between.
+    private static final RedisScript<byte[]> GET_AND_MOVE_SCRIPT = new DefaultRedisScript<>("""
+            local value = redis.call('GET', KEYS[1])
+            if value then
+                redis.call('DEL', KEYS[1])
+                redis.call('SET', KEYS[2], value, 'PX', ARGV[1])
+            end
+            return value
+            """, byte[].class);
+    private static final String LOCK_KEY_PREFIX = "LOCK:";
+    // Format id 0 is never used by a codec, so this header cannot collide with a stored value.
+    private static final byte[] ABSENT_MARKER = {0, 0};
+    static final int CLEAR_BATCH_SIZE = 500;
 
-    public RedisCacheService(RedisTemplate<String, T> redisTemplate) {
+    private final RedisTemplate<String, byte[]> redisTemplate;
+    private final CacheCodec<T> codec;
+    private final String keyPrefix;
+    private final RedisCircuitBreaker circuitBreaker;
+
+    public RedisCacheService(RedisTemplate<String, byte[]> redisTemplate,
+                             CacheCodec<T> codec,
+                             String keyPrefix,
+                             RedisCircuitBreaker circuitBreaker) {
+        if (keyPrefix == null || keyPrefix.isEmpty()) {
+            throw new IllegalArgumentException("A Redis cache needs a key prefix to keep its keys apart from other regions");
+        }
         this.redisTemplate = redisTemplate;
+        this.codec = codec;
+        this.keyPrefix = keyPrefix;
+        this.circuitBreaker = circuitBreaker;
     }
 
     @Override
     public void put(String key, T value) {
-        redisTemplate.opsForValue().set(key, value);
+        circuitBreaker.run("put", () -> redisTemplate.opsForValue().set(key(key), codec.encode(value)));
     }
 
     public void put(String key, T value, Duration timeout) {
-        redisTemplate.opsForValue().set(key, value, timeout);
+        circuitBreaker.run("put", () -> redisTemplate.opsForValue().set(key(key), codec.encode(value), timeout));
+    }
+
+    public void putAbsent(String key, Duration timeout) {
+        circuitBreaker.run("put", () -> redisTemplate.opsForValue().set(key(key), ABSENT_MARKER, timeout));
+    }
+
+    @Override
+    public void putAll(Map<String, T> entries, Duration timeout) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        circuitBreaker.run("putAll", () -> redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (Map.Entry<String, T> entry : entries.entrySet()) {
+                connection.stringCommands().set(rawKey(entry.getKey()), codec.encode(entry.getValue()),
+                        Expiration.from(timeout), RedisStringCommands.SetOption.upsert());
+            }
+            return null;
+        }));
+    }
+
+    // Returns false when the writes did not reach Redis because the breaker is open or the pipeline failed.
+    public boolean writeAll(Collection<Write<T>> writes) {
+        if (writes.isEmpty()) {
+            return true;
+        }
+        return circuitBreaker.call("putAll", () -> {
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                writes.forEach(write -> set(connection, write));
+                return null;
+            });
+            return true;
+        }, () -> false);
+    }
+
+    // Stores a loaded value and releases its load lock in the same round trip, so a node polling for the lock
+    // finds the value in Redis by the time the lock is gone.
+    public boolean writeAndUnlock(Write<T> write, String owner) {
+        return circuitBreaker.call("putAndUnlock", () -> {
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                set(connection, write);
+                connection.scriptingCommands().eval(UNLOCK_SCRIPT.getScriptAsString().getBytes(StandardCharsets.UTF_8),
+                        ReturnType.INTEGER, 1, rawLockKey(write.key()), owner.getBytes(StandardCharsets.UTF_8));
+                return null;
+            });
+            return true;
+        }, () -> false);
+    }
+
+    public T getOrPut(String key, T value, Duration timeout, Duration minRemaining) {
+        // Without Redis the caller's value is the only one this node can know about.
+        return circuitBreaker.call("getOrPut", () -> decode(redisTemplate.execute(GET_OR_PUT_SCRIPT,
+                RedisSerializer.byteArray(), RedisSerializer.byteArray(), List.of(key(key)),
+                codec.encode(value), ascii(minRemaining.toMillis()), ascii(timeout.toMillis()))), () -> value);
     }
 
     @Override
     public T get(String key) {
-        return redisTemplate.opsForValue().get(key);
+        return circuitBreaker.call("get", () -> decode(redisTemplate.opsForValue().get(key(key))), () -> null);
+    }
+
+    @Override
+    public Map<String, T> getAll(Collection<String> keys) {
+        if (keys.isEmpty()) {
+            return Map.of();
+        }
+        List<String> orderedKeys = List.copyOf(keys);
+        List<byte[]> values = circuitBreaker.call("getAll",
+                () -> redisTemplate.opsForValue().multiGet(orderedKeys.stream().map(this::key).toList()), () -> null);
+        if (values == null) {
+            return Map.of();
+        }
+        Map<String, T> found = new LinkedHashMap<>();
+        for (int i = 0; i < orderedKeys.size(); i++) {
+            T value = decode(values.get(i));
+            if (value != null) {
+                found.put(orderedKeys.get(i), value);
+            }
+        }
+        return found;
+    }
+
+    public Map<String, CachedValue<T>> getAllWithTtl(Collection<String> keys) {
+        if (keys.isEmpty()) {
+            return Map.of();
+        }
+        List<String> orderedKeys = List.copyOf(keys);
+        List<Object> results = circuitBreaker.call("getAll", () -> redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (String key : orderedKeys) {
+                connection.stringCommands().get(rawKey(key));
+                connection.keyCommands().pTtl(rawKey(key));
+            }
+            return null;
+        }), () -> null);
+        if (results == null) {
+            return Map.of();
+        }
+        Map<String, CachedValue<T>> found = new LinkedHashMap<>();
+        for (int i = 0; i < orderedKeys.size(); i++) {
+            CachedValue<T> cached = cachedValue((byte[]) results.get(2 * i), (Long) results.get(2 * i + 1));
+            if (cached != null) {
+                found.put(orderedKeys.get(i), cached);
+            }
+        }
+        return found;
+    }
+
+    public CachedValue<T> getWithTtl(String key) {
+        List<Object> results = circuitBreaker.call("get", () -> redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            connection.stringCommands().get(rawKey(key));
+            connection.keyCommands().pTtl(rawKey(key));
+            return null;
+        }), () -> null);
+        return results == null ? null : cachedValue((byte[]) results.get(0), (Long) results.get(1));
+    }
+
+    @Override
+    public T getOrLoad(String key, Function<String, ? extends T> loader, Duration ttl) {
+        T value = get(key);
+        if (value == null) {
+            value = loader.apply(key);
+            if (value != null) {
+                put(key, value, ttl);
+            }
+        }
+        return value;
+    }
+
+    public boolean tryLock(String key, String owner, Duration timeout) {
+        // Without Redis there is nothing to coordinate with, so every node loads for itself.
+        return circuitBreaker.call("lock", () -> Boolean.TRUE.equals(redisTemplate.opsForValue()
+                .setIfAbsent(LOCK_KEY_PREFIX + key(key), owner.getBytes(StandardCharsets.UTF_8), timeout)), () -> true);
+    }
+
+    public void unlock(String key, String owner) {
+        circuitBreaker.run("unlock", () ->
+                redisTemplate.execute(UNLOCK_SCRIPT, List.of(LOCK_KEY_PREFIX + key(key)), owner.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    public T getAndEvict(String key) {
+        return circuitBreaker.call("getAndEvict", () -> decode(redisTemplate.opsForValue().getAndDelete(key(key))), () -> null);
+    }
+
+    public T getAndMove(String key, String targetKey, Duration ttl) {
+        return circuitBreaker.call("getAndMove", () -> decode(redisTemplate.execute(GET_AND_MOVE_SCRIPT,
+                RedisSerializer.byteArray(), RedisSerializer.byteArray(), List.of(key(key), key(targetKey)),
+                ascii(ttl.toMillis()))), () -> null);
     }
 
     @Override
     public void evict(String key) {
-        redisTemplate.delete(key);
+        circuitBreaker.run("evict", () -> redisTemplate.delete(key(key)));
     }
 
     @Override
     public void clear() {
-        redisTemplate.getConnectionFactory().getConnection().serverCommands().flushDb();
+        circuitBreaker.run("clear", this::unlinkRegion);
+    }
+
+    public boolean isAvailable() {
+        return circuitBreaker.isAvailable();
+    }
+
+    // Walks only this region's keys and unlinks them in batches, so Redis is never blocked and other regions stay intact.
+    private void unlinkRegion() {
+        ScanOptions options = ScanOptions.scanOptions().match(escapeGlob(keyPrefix) + "*").count(CLEAR_BATCH_SIZE).build();
+        List<String> batch = new ArrayList<>(CLEAR_BATCH_SIZE);
+        try (Cursor<String> cursor = redisTemplate.scan(options)) {
+            while (cursor.hasNext()) {
+                batch.add(cursor.next());
+                if (batch.size() == CLEAR_BATCH_SIZE) {
+                    redisTemplate.unlink(batch);
+                    batch.clear();
+                }
+            }
+        }
+        if (!batch.isEmpty()) {
+            redisTemplate.unlink(batch);
+        }
+    }
+
+    // remainingMillis is the PTTL reply, so -1 means the key has no expiry. A null value is an absent marker.
+    public record CachedValue<T>(T value, long remainingMillis) {
+        public boolean isAbsent() {
+            return value == null;
+        }
+    }
+
+    // A write with a null value stores an absent marker.
+    public record Write<T>(String key, T value, Duration ttl) {
+        public boolean isAbsent() {
+            return value == null;
+        }
+    }
+
+    private CachedValue<T> cachedValue(byte[] bytes, long remainingMillis) {
+        if (Arrays.equals(bytes, ABSENT_MARKER)) {
+            return new CachedValue<>(null, remainingMillis);
+        }
+        T value = decode(bytes);
+        return value == null ? null : new CachedValue<>(value, remainingMillis);
+    }
+
+    private void set(RedisConnection connection, Write<T> write) {
+        byte[] bytes = write.isAbsent() ? ABSENT_MARKER : codec.encode(write.value());
+        connection.stringCommands().set(rawKey(write.key()), bytes, Expiration.from(write.ttl()), RedisStringCommands.SetOption.upsert());
+    }
+
+    private T decode(byte[] bytes) {
+        return bytes == null ? null : codec.decode(bytes);
+    }
+
+    private static String escapeGlob(String pattern) {
+        return pattern.replaceAll("([*?\\[\\]\\\\])", "\\\\$1");
+    }
+
+    private String key(String key) {
+        return keyPrefix + key;
+    }
+
+    private byte[] rawKey(String key) {
+        return key(key).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private byte[] rawLockKey(String key) {
+        return (LOCK_KEY_PREFIX + key(key)).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] ascii(long value) {
+        return Long.toString(value).getBytes(StandardCharsets.US_ASCII);
     }
 }
@@ -0,0 +1,111 @@
+package com.ady4k.todoistapi.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+@Component
+public class RedisCircuitBreaker {
+    private static final Logger log = LoggerFactory.getLogger(RedisCircuitBreaker.class);
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final int failureThreshold;
+    private final long openMillis;
+    private final MeterRegistry meterRegistry;
+    private final Counter failures;
+
+    private final AtomicReference<State> state = new AtomicReference<>(State.CLOSED);
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private volatile long openedAtMillis;
+
+    public RedisCircuitBreaker(MeterRegistry meterRegistry,
+                               @Value("${cache.redis.breaker.failure-threshold:5}") int failureThreshold,
+                               @Value("${cache.redis.breaker.open-ms:10000}") long openMillis) {
+        this.meterRegistry = meterRegistry;
+        this.failureThreshold = failureThreshold;
+        this.openMillis = openMillis;
+        this.failures = meterRegistry.counter("cache.redis.failures");
+        Gauge.builder("cache.redis.breaker.state", state, current -> current.get().ordinal())
+                .description("0 = closed, 1 = open, 2 = half-open")
+                .register(meterRegistry);
+    }
+
+    public <R> R call(String operation, Supplier<R> action, Supplier<R> fallback) {
+        if (!permitCall()) {
+            return fallback(operation, fallback);
+        }
+        R result;
+        try {
+            result = action.get();
+        } catch (DataAccessException ex) {
+            onFailure(operation, ex);
+            return fallback(operation, fallback);
+        } catch (RuntimeException ex) {
+            // Not a Redis failure, but no proof that Redis answered either; a probe hands its slot back instead of closing.
+            state.compareAndSet(State.HALF_OPEN, State.OPEN);
+            throw ex;
+        }
+        onSuccess();
+        return result;
+    }
+
+    public void run(String operation, Runnable action) {
+        call(operation, () -> {
+            action.run();
+            return null;
+        }, () -> null);
+    }
+
+    public boolean isAvailable() {
+        return state.get() == State.CLOSED;
+    }
+
+    public State getState() {
+        return state.get();
+    }
+
+    private boolean permitCall() {
+        return switch (state.get()) {
+            case CLOSED -> true;
+            // One probe is let through once the open period is over; everything else keeps falling back until it answers.
+            case OPEN -> System.currentTimeMillis() - openedAtMillis >= openMillis
+                    && state.compareAndSet(State.OPEN, State.HALF_OPEN);
+            case HALF_OPEN -> false;
+        };
+    }
+
+    private void onSuccess() {
+        consecutiveFailures.set(0);
+        if (state.compareAndSet(State.HALF_OPEN, State.CLOSED)) {
+            log.info("Redis is reachable again, circuit breaker closed");
+        }
+    }
+
+    private void onFailure(String operation, DataAccessException ex) {
+        failures.increment();
+        if (state.compareAndSet(State.HALF_OPEN, State.OPEN)) {
+            openedAtMillis = System.currentTimeMillis();
+            return;
+        }
+        if (consecutiveFailures.incrementAndGet() >= failureThreshold && state.compareAndSet(State.CLOSED, State.OPEN)) {
+            openedAtMillis = System.currentTimeMillis();
+            log.warn("Redis {} failed {} times in a row, serving from local caches for {} ms: {}",
+                    operation, consecutiveFailures.get(), openMillis, ex.getMessage());
+        }
+    }
+
+    private <R> R fallback(String operation, Supplier<R> fallback) {
+        meterRegistry.counter("cache.redis.fallbacks", "operation", operation).increment();
+        return fallback.get();
+    }
+}
@@ -0,0 +1,77 @@
+package com.ady4k.todoistapi.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+@Component
+public class SessionValidityCache implements MessageListener {
+    public static final String INVALIDATION_CHANNEL = "token:session:invalidate";
+    private static final Logger log = LoggerFactory.getLogger(SessionValidityCache.class);
+
+    private final boolean enabled;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final Cache<String, Boolean> activeSessions;
+
+    public SessionValidityCache(StringRedisTemplate stringRedisTemplate,
+                                RedisMessageListenerContainer listenerContainer,
+                                @Value("${token.session.validation:redis}") String validationMode,
+                                @Value("${token.session.local-ttl-seconds:60}") long localTtlSeconds,
+                                @Value("${token.session.local-maximum-size:100000}") long localMaximumSize) {
+        this.enabled = "local".equalsIgnoreCase(validationMode);
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.listenerContainer = listenerContainer;
+        this.activeSessions = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofSeconds(localTtlSeconds))
+                .maximumSize(localMaximumSize)
+                .build();
+    }
+
+    @PostConstruct
+    public void subscribe() {
+        if (enabled) {
+            listenerContainer.addMessageListener(this, new ChannelTopic(INVALIDATION_CHANNEL));
+            log.info("Local session validation enabled, listening on channel {}", INVALIDATION_CHANNEL);
+        }
+    }
+
+    public boolean isKnownActive(String username) {
+        return enabled && activeSessions.getIfPresent(username) != null;
+    }
+
+    public void markActive(String username) {
+        if (enabled) {
+            activeSessions.put(username, Boolean.TRUE);
+        }
+    }
+
+    public void invalidate(String username) {
+        activeSessions.invalidate(username);
+        if (enabled) {
+            try {
+                stringRedisTemplate.convertAndSend(INVALIDATION_CHANNEL, username);
+            } catch (DataAccessException ex) {
+                log.warn("Could not broadcast session invalidation for {}: {}", username, ex.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        activeSessions.invalidate(new String(message.getBody(), StandardCharsets.UTF_8));
+    }
+}
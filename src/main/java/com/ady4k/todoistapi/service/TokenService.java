@@ -1,63 +1,157 @@
 package com.ady4k.todoistapi.service;
 
 import com.ady4k.todoistapi.dto.UserDto;
+import com.ady4k.todoistapi.exception.InvalidTokenException;
 import com.ady4k.todoistapi.security.JwtUtil;
+import com.ady4k.todoistapi.security.TokenDenylist;
+import com.ady4k.todoistapi.security.VerifiedToken;
+import io.jsonwebtoken.JwtException;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.stereotype.Service;
 
+import java.security.SecureRandom;
 import java.time.Duration;
-import java.util.Date;
+import java.util.Base64;
+import java.util.Map;
+import java.util.UUID;
 
 @Service
 public class TokenService {
-    private static final int TIME_LIMIT = 5 * 60 * 1000;
+    private static final Duration TIME_LIMIT = Duration.ofMinutes(5);
+    private static final String REFRESH_TOKEN_PREFIX = "REFRESH:";
+    private static final String REFRESH_USED_PREFIX = "REFRESH:USED:";
+    private static final String REFRESH_FAMILY_PREFIX = "REFRESH:FAMILY:";
+    private static final int REFRESH_TOKEN_BYTES = 32;
+
+    private final SecureRandom secureRandom = new SecureRandom();
     private final JwtUtil jwtUtil;
     private final RedisCacheService<String> redisCacheService;
-    private final UserDetailsService userDetailsService;
+    private final SessionValidityCache sessionValidityCache;
+    private final TokenDenylist tokenDenylist;
     private final Duration cacheTtl;
+    private final Duration refreshTtl;
+    private final boolean allowWhenRedisUnavailable;
 
     public TokenService(JwtUtil jwtUtil, RedisCacheService<String> redisCacheService,
-                        UserDetailsService userDetailsService,
-                        @Value("${token.expiration.time.minutes}") String tokenExpirationTimeMinutes) {
+                        SessionValidityCache sessionValidityCache,
+                        TokenDenylist tokenDenylist,
+                        @Value("${token.expiration.time.minutes}") String tokenExpirationTimeMinutes,
+                        @Value("${token.refresh.expiration.time.days:14}") String refreshExpirationTimeDays,
+                        @Value("${token.session.degraded-policy:reject}") String degradedPolicy) {
         this.jwtUtil = jwtUtil;
         this.redisCacheService = redisCacheService;
-        this.userDetailsService = userDetailsService;
+        this.sessionValidityCache = sessionValidityCache;
+        this.tokenDenylist = tokenDenylist;
         this.cacheTtl = Duration.ofMinutes(Long.parseLong(tokenExpirationTimeMinutes));
+        this.refreshTtl = Duration.ofDays(Long.parseLong(refreshExpirationTimeDays));
+        this.allowWhenRedisUnavailable = "allow".equalsIgnoreCase(degradedPolicy);
     }
 
     public String getOrCreateToken(UserDto userDto) {
-        String existingToken = redisCacheService.get(userDto.getUsername());
+        String createdToken = jwtUtil.generateToken(userDto);
+        String sessionToken = redisCacheService.getOrPut(userDto.getUsername(), createdToken, cacheTtl, TIME_LIMIT);
+        if (!sessionToken.equals(createdToken) && !isUsable(sessionToken)) {
+            // The stored token was logged out on its own; the session stays, but it gets a token that still works.
+            redisCacheService.put(userDto.getUsername(), createdToken, cacheTtl);
+            sessionToken = createdToken;
+        }
+        sessionValidityCache.markActive(userDto.getUsername());
+
+        return sessionToken;
+    }
+
+    public void invalidateToken(UserDto userDto) {
+        redisCacheService.evict(userDto.getUsername());
+        sessionValidityCache.invalidate(userDto.getUsername());
+    }
+
+    // Ends this token only; the user's other tokens keep working. invalidateToken logs the user out everywhere.
+    public void revokeToken(VerifiedToken verifiedToken) {
+        if (verifiedToken.expiration() != null) {
+            tokenDenylist.revoke(verifiedToken.id(), verifiedToken.expiration().getTime());
+        }
+    }
 
-        if (existingToken != null) {
-            if (getRemainingTime(existingToken) > TIME_LIMIT) {
-                return existingToken;
-            } else {
-                this.invalidateToken(userDto);
+    public boolean isTokenValid(VerifiedToken verifiedToken, UserDetails userDetails) {
+        if (tokenDenylist.isRevoked(verifiedToken.id())) {
+            return false;
+        }
+        String username = userDetails.getUsername();
+        if (!sessionValidityCache.isKnownActive(username)) {
+            if (redisCacheService.get(username) != null) {
+                sessionValidityCache.markActive(username);
+            } else if (redisCacheService.isAvailable() || !allowWhenRedisUnavailable) {
+                return false;
             }
+            // Redis is down and the policy is "allow": a signed, unexpired token that is not on the local denylist is trusted.
         }
+        return jwtUtil.isTokenValid(verifiedToken, userDetails);
+    }
 
-        String createdToken = jwtUtil.generateToken(userDto);
-        redisCacheService.put(userDto.getUsername(), createdToken, cacheTtl);
+    public String createRefreshToken(UserDto userDto) {
+        return storeRefreshToken(userDto.getUsername(), UUID.randomUUID().toString());
+    }
 
-        return createdToken;
+    public RefreshGrant rotateRefreshToken(String refreshToken) {
+        if (refreshToken == null || refreshToken.isBlank()) {
+            throw new InvalidTokenException("Refresh token is missing");
+        }
+        String digest = JwtUtil.digest(refreshToken);
+        // Consuming the token and marking it used is one step, so a concurrent replay either rotates it or is caught as reuse.
+        String session = redisCacheService.getAndMove(REFRESH_TOKEN_PREFIX + digest, REFRESH_USED_PREFIX + digest, refreshTtl);
+
+        if (session == null) {
+            String usedSession = redisCacheService.get(REFRESH_USED_PREFIX + digest);
+            if (usedSession != null) {
+                revokeRefreshFamily(usedSession);
+                throw new InvalidTokenException("Refresh token was already used");
+            }
+            throw new InvalidTokenException("Refresh token is invalid or expired");
+        }
+
+        String username = usernameOf(session);
+        String rotatedToken = storeRefreshToken(username, familyOf(session));
+        return new RefreshGrant(username, rotatedToken);
     }
 
-    public void invalidateToken(UserDto userDto) {
-        redisCacheService.evict(userDto.getUsername());
+    private String storeRefreshToken(String username, String familyId) {
+        byte[] bytes = new byte[REFRESH_TOKEN_BYTES];
+        secureRandom.nextBytes(bytes);
+        String refreshToken = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        String digest = JwtUtil.digest(refreshToken);
+
+        redisCacheService.putAll(Map.of(
+                REFRESH_TOKEN_PREFIX + digest, familyId + ":" + username,
+                REFRESH_FAMILY_PREFIX + familyId, digest), refreshTtl);
+        return refreshToken;
     }
 
-    public boolean isTokenValid(String token, UserDto userDto) {
-        if (redisCacheService.get(userDto.getUsername()) != null) {
-            UserDetails userDetails = userDetailsService.loadUserByUsername(userDto.getUsername());
-            return jwtUtil.isTokenValid(token, userDetails);
+    private void revokeRefreshFamily(String session) {
+        String familyId = familyOf(session);
+        String currentDigest = redisCacheService.getAndEvict(REFRESH_FAMILY_PREFIX + familyId);
+        if (currentDigest != null) {
+            redisCacheService.evict(REFRESH_TOKEN_PREFIX + currentDigest);
         }
-        return false;
+        invalidateToken(new UserDto(usernameOf(session)));
+    }
+
+    private boolean isUsable(String token) {
+        try {
+            return !tokenDenylist.isRevoked(jwtUtil.verify(token).id());
+        } catch (JwtException ex) {
+            return false;
+        }
+    }
+
+    private static String familyOf(String session) {
+        return session.substring(0, session.indexOf(':'));
+    }
+
+    private static String usernameOf(String session) {
+        return session.substring(session.indexOf(':') + 1);
     }
 
-    private long getRemainingTime(String token) {
-        Date now = new Date();
-        return now.getTime() - jwtUtil.extractExpiration(token).getTime();
+    public record RefreshGrant(String username, String refreshToken) {
     }
 }
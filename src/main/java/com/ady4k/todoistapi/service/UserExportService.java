@@ -0,0 +1,42 @@
+package com.ady4k.todoistapi.service;
+
+import com.ady4k.todoistapi.dto.UserDto;
+import com.ady4k.todoistapi.repository.UserRepository;
+import com.ady4k.todoistapi.repository.UserSummary;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+@Service
+public class UserExportService {
+    private final UserRepository userRepository;
+    private final ObjectWriter userWriter;
+
+    public UserExportService(UserRepository userRepository, ObjectMapper objectMapper) {
+        this.userRepository = userRepository;
+        this.userWriter = objectMapper.writerFor(UserDto.class);
+    }
+
+    // Called from the response-writing thread; the transaction keeps the database cursor open while rows are written.
+    @Transactional(readOnly = true)
+    public long exportNdjson(OutputStream outputStream) throws IOException {
+        long exported = 0;
+        try (Stream<UserSummary> users = userRepository.streamAllOrderedById()) {
+            Iterator<UserSummary> iterator = users.iterator();
+            while (iterator.hasNext()) {
+                UserSummary user = iterator.next();
+                outputStream.write(userWriter.writeValueAsBytes(new UserDto(user.id(), user.username())));
+                outputStream.write('\n');
+                exported++;
+            }
+        }
+        outputStream.flush();
+        return exported;
+    }
+}
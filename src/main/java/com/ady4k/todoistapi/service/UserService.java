@@ -1,70 +1,90 @@
 package com.ady4k.todoistapi.service;
 
 import com.ady4k.todoistapi.dto.UserDto;
+import com.ady4k.todoistapi.dto.UserPageDto;
 import com.ady4k.todoistapi.exception.AlreadyExistsException;
+import com.ady4k.todoistapi.exception.InvalidCursorException;
 import com.ady4k.todoistapi.exception.ResourceNotFoundException;
 import com.ady4k.todoistapi.model.User;
 import com.ady4k.todoistapi.repository.UserRepository;
+import com.ady4k.todoistapi.repository.UserSummary;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.data.domain.Limit;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
+import java.nio.ByteBuffer;
 import java.time.Duration;
+import java.util.Base64;
 import java.util.List;
-import java.util.stream.Collectors;
 
 @Service
 public class UserService implements UserDetailsService {
-    private static final String USER_ID_CACHE_PREFIX = "USER:ID:";
-    private static final String USER_USERNAME_CACHE_PREFIX = "USER:USERNAME:";
-    private static final Duration CACHE_TTL = Duration.ofMinutes(30);
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    public static final int MAX_PAGE_SIZE = 200;
+    private static final Duration AUTH_CACHE_TTL = Duration.ofMinutes(1);
+    private static final long AUTH_CACHE_MAXIMUM_SIZE = 10000;
 
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
-    private final MultiLayerCacheService<UserDto> cacheService;
+    private final MultiLayerCacheService<UserDto> usersByIdCache;
+    private final MultiLayerCacheService<UserDto> usersByUsernameCache;
+    private final Cache<String, UserDetails> authenticatedUserCache;
 
     public UserService(UserRepository userRepository,
                        PasswordEncoder passwordEncoder,
-                       MultiLayerCacheService<UserDto> cacheService) {
+                       @Qualifier("usersByIdCache") MultiLayerCacheService<UserDto> usersByIdCache,
+                       @Qualifier("usersByUsernameCache") MultiLayerCacheService<UserDto> usersByUsernameCache) {
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
-        this.cacheService = cacheService;
+        this.usersByIdCache = usersByIdCache;
+        this.usersByUsernameCache = usersByUsernameCache;
+        this.authenticatedUserCache = Caffeine.newBuilder()
+                .expireAfterWrite(AUTH_CACHE_TTL)
+                .maximumSize(AUTH_CACHE_MAXIMUM_SIZE)
+                .build();
     }
 
-    public List<UserDto> getAllUsers() {
-        return userRepository.findAll()
-                .stream()
-                .map(user -> new UserDto(user.getId(), user.getUsername()))
-                .collect(Collectors.toList());
+    public UserPageDto getUsers(String cursor, int pageSize) {
+        int limit = Math.clamp(pageSize, 1, MAX_PAGE_SIZE);
+        long afterId = cursor == null || cursor.isBlank() ? Long.MIN_VALUE : decodeCursor(cursor);
+        // One extra row tells whether another page follows without a count query.
+        List<UserSummary> users = userRepository.findSummariesByIdGreaterThanOrderByIdAsc(afterId, Limit.of(limit + 1));
+        List<UserDto> page = users.stream()
+                .limit(limit)
+                .map(UserService::toDto)
+                .toList();
+        String nextCursor = users.size() > limit ? encodeCursor(page.getLast().getId()) : null;
+        return new UserPageDto(page, nextCursor);
     }
 
     public UserDto getUserById(Long id) {
-        UserDto userDto = cacheService.get(USER_ID_CACHE_PREFIX + id);
+        UserDto userDto = usersByIdCache.getOrLoad(id.toString(), key -> userRepository.findSummaryById(id)
+                .map(UserService::toDto)
+                .orElse(null));
         if (userDto == null) {
-            User user = userRepository.findById(id)
-                    .orElseThrow(() -> new ResourceNotFoundException("User with id " + id + " not found"));
-            cacheService.put(USER_ID_CACHE_PREFIX + user.getId(), new UserDto(user.getId(), user.getUsername()), CACHE_TTL);
-            return new UserDto(user.getId(), user.getUsername());
+            throw new ResourceNotFoundException("User with id " + id + " not found");
         }
         return userDto;
     }
 
     public UserDto getUserByUsername(String username) {
-        UserDto userDto = cacheService.get(USER_USERNAME_CACHE_PREFIX + username);
+        UserDto userDto = usersByUsernameCache.getOrLoad(username, key -> userRepository.findSummaryByUsername(username)
+                .map(UserService::toDto)
+                .orElse(null));
         if (userDto == null) {
-        User user = userRepository.findByUsername(username)
-                .orElseThrow(() -> new ResourceNotFoundException(("User with username " + username + " not found")));
-        cacheService.put(USER_USERNAME_CACHE_PREFIX + username, new UserDto(user.getId(), user.getUsername()), CACHE_TTL);
-        return new UserDto(user.getId(), user.getUsername());
+            throw new ResourceNotFoundException("User with username " + username + " not found");
         }
         return userDto;
     }
 
     public UserDto createUser(UserDto userDto) {
-        if (userRepository.findByUsername(userDto.getUsername()).isPresent()) {
+        if (userRepository.existsByUsername(userDto.getUsername())) {
             throw new AlreadyExistsException("An user with the given username already exists");
         }
 
@@ -72,10 +92,11 @@ public class UserService implements UserDetailsService {
         user.setUsername(userDto.getUsername());
         user.setPassword(passwordEncoder.encode(userDto.getPassword()));
         User savedUser = userRepository.save(user);
+        evictAuthenticatedUser(savedUser.getUsername());
 
         UserDto newUserDto = new UserDto(savedUser.getId(), savedUser.getUsername());
-        cacheService.put(USER_ID_CACHE_PREFIX + savedUser.getId(), newUserDto, CACHE_TTL);
-        cacheService.put(USER_USERNAME_CACHE_PREFIX + savedUser.getUsername(), newUserDto, CACHE_TTL);
+        usersByIdCache.put(savedUser.getId().toString(), newUserDto);
+        usersByUsernameCache.put(savedUser.getUsername(), newUserDto);
 
         return newUserDto;
     }
@@ -85,4 +106,39 @@ public class UserService implements UserDetailsService {
         return userRepository.findByUsername(username)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found"));
     }
+
+    public UserDetails loadAuthenticatedUser(String username) throws UsernameNotFoundException {
+        return authenticatedUserCache.get(username, key -> {
+            UserDetails userDetails = loadUserByUsername(key);
+            return org.springframework.security.core.userdetails.User.withUserDetails(userDetails)
+                    .password("")
+                    .build();
+        });
+    }
+
+    public void evictAuthenticatedUser(String username) {
+        authenticatedUserCache.invalidate(username);
+    }
+
+    private static UserDto toDto(UserSummary summary) {
+        return new UserDto(summary.id(), summary.username());
+    }
+
+    // The cursor is the last id of the previous page; clients only ever pass it back unchanged.
+    private static String encodeCursor(long lastId) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(ByteBuffer.allocate(Long.BYTES).putLong(lastId).array());
+    }
+
+    private static long decodeCursor(String cursor) {
+        byte[] bytes;
+        try {
+            bytes = Base64.getUrlDecoder().decode(cursor);
+        } catch (IllegalArgumentException ex) {
+            throw new InvalidCursorException("Invalid cursor: " + cursor);
+        }
+        if (bytes.length != Long.BYTES) {
+            throw new InvalidCursorException("Invalid cursor: " + cursor);
+        }
+        return ByteBuffer.wrap(bytes).getLong();
+    }
 }
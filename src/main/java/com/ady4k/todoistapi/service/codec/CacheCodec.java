@@ -0,0 +1,7 @@
+package com.ady4k.todoistapi.service.codec;
+
+public interface CacheCodec<T> {
+    byte[] encode(T value);
+
+    T decode(byte[] bytes);
+}
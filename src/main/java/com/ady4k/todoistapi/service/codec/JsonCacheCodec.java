@@ -0,0 +1,38 @@
+package com.ady4k.todoistapi.service.codec;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import java.io.IOException;
+
+public class JsonCacheCodec<T> extends VersionedCacheCodec<T> {
+    private final ObjectWriter writer;
+    private final ObjectReader reader;
+
+    public JsonCacheCodec(ObjectMapper objectMapper, Class<T> type) {
+        super(2, 1);
+        ObjectMapper mapper = objectMapper.copy().setSerializationInclusion(JsonInclude.Include.NON_NULL);
+        this.writer = mapper.writerFor(type);
+        this.reader = mapper.readerFor(type);
+    }
+
+    @Override
+    protected byte[] encodePayload(T value) {
+        try {
+            return writer.writeValueAsBytes(value);
+        } catch (IOException ex) {
+            throw new IllegalArgumentException("Could not encode cache value", ex);
+        }
+    }
+
+    @Override
+    protected T decodePayload(byte[] payload) {
+        try {
+            return reader.readValue(payload);
+        } catch (IOException ex) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.ady4k.todoistapi.service.codec;
+
+import java.nio.charset.StandardCharsets;
+
+public class StringCacheCodec extends VersionedCacheCodec<String> {
+    public StringCacheCodec() {
+        super(1, 1);
+    }
+
+    @Override
+    protected byte[] encodePayload(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    protected String decodePayload(byte[] payload) {
+        return new String(payload, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,38 @@
+package com.ady4k.todoistapi.service.codec;
+
+import com.ady4k.todoistapi.dto.UserDto;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Fixed layout: {@code id} as 8 bytes ({@link Long#MIN_VALUE} for null) followed by the UTF-8 username.
+ * Passwords are never written to the cache.
+ */
+public class UserDtoCacheCodec extends VersionedCacheCodec<UserDto> {
+    private static final long NULL_ID = Long.MIN_VALUE;
+
+    public UserDtoCacheCodec() {
+        super(3, 1);
+    }
+
+    @Override
+    protected byte[] encodePayload(UserDto value) {
+        byte[] username = value.getUsername() == null ? new byte[0] : value.getUsername().getBytes(StandardCharsets.UTF_8);
+        return ByteBuffer.allocate(Long.BYTES + username.length)
+                .putLong(value.getId() == null ? NULL_ID : value.getId())
+                .put(username)
+                .array();
+    }
+
+    @Override
+    protected UserDto decodePayload(byte[] payload) {
+        if (payload.length < Long.BYTES) {
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(payload);
+        long id = buffer.getLong();
+        String username = new String(payload, Long.BYTES, payload.length - Long.BYTES, StandardCharsets.UTF_8);
+        return new UserDto(id == NULL_ID ? null : id, username);
+    }
+}
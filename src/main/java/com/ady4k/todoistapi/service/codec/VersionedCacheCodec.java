@@ -0,0 +1,41 @@
+package com.ady4k.todoistapi.service.codec;
+
+import java.util.Arrays;
+
+/**
+ * Prefixes every value with a format id and a schema version. Values written by another codec or an older
+ * schema decode to {@code null}, so they are treated as cache misses instead of failing the request.
+ */
+public abstract class VersionedCacheCodec<T> implements CacheCodec<T> {
+    private static final int HEADER_LENGTH = 2;
+
+    private final byte formatId;
+    private final byte version;
+
+    protected VersionedCacheCodec(int formatId, int version) {
+        this.formatId = (byte) formatId;
+        this.version = (byte) version;
+    }
+
+    @Override
+    public final byte[] encode(T value) {
+        byte[] payload = encodePayload(value);
+        byte[] bytes = new byte[payload.length + HEADER_LENGTH];
+        bytes[0] = formatId;
+        bytes[1] = version;
+        System.arraycopy(payload, 0, bytes, HEADER_LENGTH, payload.length);
+        return bytes;
+    }
+
+    @Override
+    public final T decode(byte[] bytes) {
+        if (bytes == null || bytes.length < HEADER_LENGTH || bytes[0] != formatId || bytes[1] != version) {
+            return null;
+        }
+        return decodePayload(Arrays.copyOfRange(bytes, HEADER_LENGTH, bytes.length));
+    }
+
+    protected abstract byte[] encodePayload(T value);
+
+    protected abstract T decodePayload(byte[] payload);
+}
@@ -2,10 +2,13 @@ package com.ady4k.todoistapi.controller;
 
 import com.ady4k.todoistapi.dto.AuthRequest;
 import com.ady4k.todoistapi.dto.AuthResponse;
+import com.ady4k.todoistapi.dto.RefreshRequest;
 import com.ady4k.todoistapi.dto.UserDto;
 import com.ady4k.todoistapi.exception.AlreadyExistsException;
+import com.ady4k.todoistapi.security.LoginRateLimiter;
 import com.ady4k.todoistapi.service.AuthService;
 import com.ady4k.todoistapi.service.UserService;
+import jakarta.servlet.http.HttpServletRequest;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -15,10 +18,15 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.web.client.HttpClientErrorException;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -32,6 +40,12 @@ class AuthControllerTest {
     @Mock
     private AuthService authService;
 
+    @Mock
+    private LoginRateLimiter loginRateLimiter;
+
+    @Mock
+    private HttpServletRequest servletRequest;
+
     private AuthRequest authRequest;
     private UserDto userDto;
 
@@ -44,16 +58,43 @@ class AuthControllerTest {
     @Test
     void login_ValidCredentials_ReturnsToken() {
         // Arrange
-        String expected = "token";
+        AuthResponse expected = new AuthResponse("token", "refresh");
         when(authService.loginByCredentials(any(AuthRequest.class))).thenReturn(expected);
 
         // Act
-        ResponseEntity<AuthResponse> response = authController.login(authRequest);
+        ResponseEntity<AuthResponse> response = authController.login(authRequest, servletRequest);
 
         // Assert
         assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
         assertThat(response.getBody()).isNotNull();
-        assertThat(response.getBody().getToken()).isEqualTo(expected);
+        assertThat(response.getBody().getToken()).isEqualTo("token");
+        assertThat(response.getBody().getRefreshToken()).isEqualTo("refresh");
+    }
+
+    @Test
+    void login_RateLimited_ThrowsBeforeAuthenticating() {
+        // Arrange
+        when(servletRequest.getRemoteAddr()).thenReturn("10.0.0.1");
+        doThrow(HttpClientErrorException.create(HttpStatus.TOO_MANY_REQUESTS, "Too many attempts", null, null, null))
+                .when(loginRateLimiter).checkLimit("10.0.0.1", "test");
+
+        // Act & Assert
+        assertThrows(HttpClientErrorException.TooManyRequests.class, () -> authController.login(authRequest, servletRequest));
+        verifyNoInteractions(authService);
+    }
+
+    @Test
+    void refresh_ValidRefreshToken_ReturnsNewTokens() {
+        // Arrange
+        when(authService.refresh("refresh")).thenReturn(new AuthResponse("token", "rotated"));
+
+        // Act
+        ResponseEntity<AuthResponse> response = authController.refresh(new RefreshRequest("refresh"));
+
+        // Assert
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody()).isNotNull();
+        assertThat(response.getBody().getRefreshToken()).isEqualTo("rotated");
     }
 
     @Test
@@ -70,13 +111,23 @@ class AuthControllerTest {
         assertThat(thrown).hasMessageContaining("Wrong credentials");
     }
 
+    @Test
+    void logout_BearerToken_RevokesAndReturnsNoContent() {
+        // Act
+        ResponseEntity<Void> response = authController.logout("Bearer token");
+
+        // Assert
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NO_CONTENT);
+        verify(authService, times(1)).logout("token");
+    }
+
     @Test
     void register_ValidUser_ReturnsCreatedUser() {
         // Arrange
         when(userService.createUser(any(UserDto.class))).thenReturn(userDto);
 
         // Act
-        ResponseEntity<String> response = authController.register(authRequest);
+        ResponseEntity<String> response = authController.register(authRequest, servletRequest);
 
         // Assert
         assertThat(response.getStatusCode()).isEqualTo(HttpStatus.CREATED);
@@ -90,7 +141,7 @@ class AuthControllerTest {
         when(userService.createUser(any(UserDto.class))).thenThrow(new AlreadyExistsException("Username already exists"));
         AlreadyExistsException thrown = assertThrows(
                 AlreadyExistsException.class,
-                () -> authController.register(authRequest),
+                () -> authController.register(authRequest, servletRequest),
                 "Expected createUser(userDto) to throw but it didn't"
         );
 
@@ -1,7 +1,9 @@
 package com.ady4k.todoistapi.controller;
 
 import com.ady4k.todoistapi.dto.UserDto;
+import com.ady4k.todoistapi.dto.UserPageDto;
 import com.ady4k.todoistapi.exception.ResourceNotFoundException;
+import com.ady4k.todoistapi.service.UserExportService;
 import com.ady4k.todoistapi.service.UserService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -10,12 +12,17 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -26,6 +33,9 @@ class UserControllerTest {
     @Mock
     private UserService userService;
 
+    @Mock
+    private UserExportService userExportService;
+
     private UserDto userDto;
 
     @BeforeEach
@@ -34,17 +44,33 @@ class UserControllerTest {
     }
 
     @Test
-    void getAllUsers_ReturnsUserList() {
+    void getUsers_ReturnsUserPage() {
+        // Arrange
+        when(userService.getUsers("cursor", 10)).thenReturn(new UserPageDto(List.of(userDto), "next"));
+
+        // Act
+        ResponseEntity<UserPageDto> response = userController.getUsers("cursor", 10);
+
+        // Assert
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody()).isNotNull();
+        assertThat(response.getBody().getUsers()).containsExactly(userDto);
+        assertThat(response.getBody().getNextCursor()).isEqualTo("next");
+    }
+
+    @Test
+    void exportUsers_StreamsNdjsonFromExportService() throws IOException {
         // Arrange
-        when(userService.getAllUsers()).thenReturn(List.of(userDto));
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
 
         // Act
-        ResponseEntity<List<UserDto>> response = userController.getAllUsers();
+        ResponseEntity<StreamingResponseBody> response = userController.exportUsers();
+        response.getBody().writeTo(output);
 
         // Assert
         assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
-        assertThat(response.getBody()).isNotNull().hasSize(1);
-        assertThat(response.getBody().getFirst()).isEqualTo(userDto);
+        assertThat(response.getHeaders().getContentType()).isEqualTo(MediaType.APPLICATION_NDJSON);
+        verify(userExportService).exportNdjson(output);
     }
 
     @Test
@@ -4,6 +4,7 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.HttpClientErrorException;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -40,4 +41,43 @@ class GlobalExceptionHandlerTest {
         assertThat(HttpStatus.BAD_REQUEST).isEqualTo(response.getStatusCode());
         assertThat("Already exists").isEqualTo(response.getBody());
     }
+
+    @Test
+    void testHandleInvalidCursor() {
+        // Arrange
+        InvalidCursorException exception = new InvalidCursorException("Invalid cursor: x");
+
+        // Act
+        ResponseEntity<String> response = globalExceptionHandler.handleInvalidCursor(exception);
+
+        // Assert
+        assertThat(HttpStatus.BAD_REQUEST).isEqualTo(response.getStatusCode());
+        assertThat("Invalid cursor: x").isEqualTo(response.getBody());
+    }
+
+    @Test
+    void testHandleInvalidToken() {
+        // Arrange
+        InvalidTokenException exception = new InvalidTokenException("Refresh token is invalid or expired");
+
+        // Act
+        ResponseEntity<String> response = globalExceptionHandler.handleInvalidToken(exception);
+
+        // Assert
+        assertThat(HttpStatus.UNAUTHORIZED).isEqualTo(response.getStatusCode());
+        assertThat("Refresh token is invalid or expired").isEqualTo(response.getBody());
+    }
+
+    @Test
+    void testHandleTooManyRequests() {
+        // Arrange
+        HttpClientErrorException exception = HttpClientErrorException.create(HttpStatus.TOO_MANY_REQUESTS, "Slow down", null, null, null);
+
+        // Act
+        ResponseEntity<String> response = globalExceptionHandler.handleTooManyRequests(exception);
+
+        // Assert
+        assertThat(HttpStatus.TOO_MANY_REQUESTS).isEqualTo(response.getStatusCode());
+        assertThat("Slow down").isEqualTo(response.getBody());
+    }
 }
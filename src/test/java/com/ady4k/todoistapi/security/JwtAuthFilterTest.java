@@ -1,7 +1,8 @@
 package com.ady4k.todoistapi.security;
 
-import com.ady4k.todoistapi.dto.UserDto;
 import com.ady4k.todoistapi.service.TokenService;
+import com.ady4k.todoistapi.service.UserService;
+import io.jsonwebtoken.JwtException;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
@@ -12,14 +13,15 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockHttpServletRequest;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 
 import java.io.PrintWriter;
+import java.util.Date;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
@@ -31,7 +33,7 @@ class JwtAuthFilterTest {
     private JwtAuthFilter jwtAuthFilter;
 
     @Mock
-    private UserDetailsService userDetailsService;
+    private UserService userService;
 
     @Mock
     private TokenService tokenService;
@@ -61,10 +63,10 @@ class JwtAuthFilterTest {
 
         UserDetails userDetails = User.withUsername(username).password("password").roles("USER").build();
 
-        when(userDetailsService.loadUserByUsername(username)).thenReturn(userDetails);
-        when(tokenService.isTokenValid(any(String.class), any(UserDto.class))).thenReturn(true);
+        when(userService.loadAuthenticatedUser(username)).thenReturn(userDetails);
+        when(tokenService.isTokenValid(any(VerifiedToken.class), any(UserDetails.class))).thenReturn(true);
         when(request.getHeader("Authorization")).thenReturn(authHeader);
-        when(jwtUtil.extractUsername(any(String.class))).thenReturn(username);
+        when(jwtUtil.verify(token)).thenReturn(verifiedToken(token, username));
 
         // Act
         jwtAuthFilter.doFilterInternal(request, response, filterChain);
@@ -100,7 +102,7 @@ class JwtAuthFilterTest {
 
         PrintWriter mockWriter = mock(PrintWriter.class);
         when(response.getWriter()).thenReturn(mockWriter);
-        when(jwtUtil.extractUsername(any(String.class))).thenReturn("testuser");
+        when(jwtUtil.verify(token)).thenReturn(verifiedToken(token, "testuser"));
 
         // Act
         jwtAuthFilter.doFilterInternal(request, response, filterChain);
@@ -112,6 +114,28 @@ class JwtAuthFilterTest {
         assertThat(SecurityContextHolder.getContext().getAuthentication()).isNull();
     }
 
+    @Test
+    void testDoFilterInternal_WithBadSignature() throws Exception {
+        // Arrange
+        String token = "tampered.jwt.token";
+        String authHeader = "Bearer " + token;
+
+        when(request.getHeader("Authorization")).thenReturn(authHeader);
+
+        PrintWriter mockWriter = mock(PrintWriter.class);
+        when(response.getWriter()).thenReturn(mockWriter);
+        when(jwtUtil.verify(token)).thenThrow(new JwtException("Invalid signature"));
+
+        // Act
+        jwtAuthFilter.doFilterInternal(request, response, filterChain);
+
+        // Assert
+        verify(response, times(1)).setStatus(HttpServletResponse.SC_FORBIDDEN);
+        verify(filterChain, never()).doFilter(request, response);
+        verifyNoInteractions(userService, tokenService);
+        assertThat(SecurityContextHolder.getContext().getAuthentication()).isNull();
+    }
+
     @Test
     void testDoFilterInternal_WhenNoAuthorizationHeader() throws Exception {
         // Arrange
@@ -126,7 +150,7 @@ class JwtAuthFilterTest {
         // Assert
         verify(response, times(1)).setStatus(HttpServletResponse.SC_UNAUTHORIZED);
         verify(response, times(1)).getWriter();
-        verify(filterChain, times(1)).doFilter(request, response);
+        verify(filterChain, never()).doFilter(request, response);
         assertThat(SecurityContextHolder.getContext().getAuthentication()).isNull();
     }
 
@@ -146,7 +170,27 @@ class JwtAuthFilterTest {
         // Assert
         verify(response, times(1)).setStatus(HttpServletResponse.SC_UNAUTHORIZED);
         verify(response, times(1)).getWriter();
-        verify(filterChain, times(1)).doFilter(request, response);
+        verify(filterChain, never()).doFilter(request, response);
         assertThat(SecurityContextHolder.getContext().getAuthentication()).isNull();
     }
+
+    @Test
+    void testShouldNotFilter_PublicRoutes() {
+        // Act & Assert
+        assertThat(jwtAuthFilter.shouldNotFilter(requestTo("POST", "/login"))).isTrue();
+        assertThat(jwtAuthFilter.shouldNotFilter(requestTo("POST", "/register"))).isTrue();
+        assertThat(jwtAuthFilter.shouldNotFilter(requestTo("POST", "/refresh"))).isTrue();
+        assertThat(jwtAuthFilter.shouldNotFilter(requestTo("GET", "/api/users"))).isFalse();
+        assertThat(jwtAuthFilter.shouldNotFilter(requestTo("POST", "/logout"))).isFalse();
+    }
+
+    private static MockHttpServletRequest requestTo(String method, String path) {
+        MockHttpServletRequest servletRequest = new MockHttpServletRequest(method, path);
+        servletRequest.setServletPath(path);
+        return servletRequest;
+    }
+
+    private static VerifiedToken verifiedToken(String token, String username) {
+        return new VerifiedToken(token, "jti-1", username, new Date(System.currentTimeMillis() + 60_000), new Date(), null);
+    }
 }
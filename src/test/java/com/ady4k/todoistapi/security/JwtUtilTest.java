@@ -35,7 +35,7 @@ class JwtUtilTest {
 
     @BeforeEach
     void setUp() {
-        jwtUtil = new JwtUtil(TEST_SECRET_KEY, TEST_EXPIRATION_MS);
+        jwtUtil = new JwtUtil(TEST_SECRET_KEY, TEST_EXPIRATION_MS, 100, 30);
         jwtUtil.init();
 
         userDto = new UserDto(1L, "user", "pass");
@@ -111,6 +111,84 @@ class JwtUtilTest {
         assertThrows(JwtException.class, () -> jwtUtil.isTokenValid(wrongToken, userDetails));
     }
 
+    @Test
+    void verify_ValidToken_ReturnsVerifiedClaims() {
+        // Act
+        VerifiedToken verifiedToken = jwtUtil.verify(validToken);
+
+        // Assert
+        assertThat(verifiedToken.token()).isEqualTo(validToken);
+        assertThat(verifiedToken.id()).isNotBlank();
+        assertThat(verifiedToken.subject()).isEqualTo(userDto.getUsername());
+        assertThat(verifiedToken.expiration()).isAfter(new Date());
+        assertThat(verifiedToken.issuedAt()).isBeforeOrEqualTo(new Date());
+        assertThat(verifiedToken.claims().getSubject()).isEqualTo(userDto.getUsername());
+        assertThat(verifiedToken.getRemainingMillis()).isPositive();
+    }
+
+    @Test
+    void generateToken_CalledTwice_AssignsDistinctIds() {
+        // Act
+        VerifiedToken first = jwtUtil.verify(jwtUtil.generateToken(userDto));
+        VerifiedToken second = jwtUtil.verify(jwtUtil.generateToken(userDto));
+
+        // Assert
+        assertThat(first.id()).isNotEqualTo(second.id());
+    }
+
+    @Test
+    void verify_InvalidOrExpiredToken_Throws() {
+        // Act & Assert
+        assertThrows(JwtException.class, () -> jwtUtil.verify("invalid_token"));
+        assertThrows(JwtException.class, () -> jwtUtil.verify(expiredToken));
+    }
+
+    @Test
+    void verify_SameTokenTwice_ReturnsCachedVerification() {
+        // Act
+        VerifiedToken first = jwtUtil.verify(validToken);
+        VerifiedToken second = jwtUtil.verify(validToken);
+
+        // Assert
+        assertThat(second).isSameAs(first);
+    }
+
+    @Test
+    void verify_RejectedTokenBecomesValid_StaysRejectedFromCache() throws InterruptedException {
+        // Arrange
+        // JWT dates have second precision, so the token becomes valid at the second boundary after next.
+        long notBeforeMillis = (System.currentTimeMillis() / 1000 + 2) * 1000;
+        String notYetValidToken = Jwts.builder()
+                .subject(userDto.getUsername())
+                .notBefore(new Date(notBeforeMillis))
+                .expiration(new Date(System.currentTimeMillis() + TEST_EXPIRATION_MS))
+                .signWith(TEST_SIGNING_KEY)
+                .compact();
+        JwtException first = assertThrows(JwtException.class, () -> jwtUtil.verify(notYetValidToken));
+        Thread.sleep(notBeforeMillis - System.currentTimeMillis() + 50);
+
+        // Act & Assert
+        JwtException second = assertThrows(JwtException.class, () -> jwtUtil.verify(notYetValidToken));
+        assertThat(second).hasMessage(first.getMessage());
+        // A fresh parse now accepts the token, so the second rejection can only have come from the cache.
+        JwtUtil uncached = new JwtUtil(TEST_SECRET_KEY, TEST_EXPIRATION_MS, 100, 30);
+        uncached.init();
+        assertThat(uncached.verify(notYetValidToken).subject()).isEqualTo(userDto.getUsername());
+    }
+
+    @Test
+    void isTokenValid_VerifiedTokenForOtherUser_ReturnsFalse() {
+        // Arrange
+        VerifiedToken verifiedToken = jwtUtil.verify(validToken);
+        UserDetails userDetails = new User("not_valid", "pass", Collections.emptyList());
+
+        // Act
+        boolean isValid = jwtUtil.isTokenValid(verifiedToken, userDetails);
+
+        // Assert
+        assertThat(isValid).isFalse();
+    }
+
     @Test
     void extractUsername_ValidToken_ReturnsUsername() {
         // Act
@@ -0,0 +1,89 @@
+package com.ady4k.todoistapi.security;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.web.client.HttpClientErrorException;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class LoginRateLimiterTest {
+    @Mock
+    private StringRedisTemplate stringRedisTemplate;
+
+    private LoginRateLimiter loginRateLimiter;
+
+    @BeforeEach
+    void setUp() {
+        loginRateLimiter = new LoginRateLimiter(stringRedisTemplate, true, 3, 1);
+    }
+
+    @Test
+    void checkLimit_WithinCapacity_DoesNotCallRedis() {
+        // Act & Assert
+        assertDoesNotThrow(() -> loginRateLimiter.checkLimit("10.0.0.1", "test"));
+        assertDoesNotThrow(() -> loginRateLimiter.checkLimit("10.0.0.1", "test"));
+        verifyNoInteractions(stringRedisTemplate);
+    }
+
+    @Test
+    void checkLimit_CapacityExhausted_ThrowsTooManyRequests() {
+        // Arrange
+        for (int i = 0; i < 3; i++) {
+            loginRateLimiter.checkLimit("10.0.0.1", "user" + i);
+        }
+
+        // Act & Assert
+        assertThrows(HttpClientErrorException.TooManyRequests.class, () -> loginRateLimiter.checkLimit("10.0.0.1", "other"));
+        assertDoesNotThrow(() -> loginRateLimiter.checkLimit("10.0.0.2", "other"));
+    }
+
+    @Test
+    void checkLimit_ThrottledAddress_DoesNotDrainUsernameBucket() {
+        // Arrange
+        for (int i = 0; i < 3; i++) {
+            loginRateLimiter.checkLimit("10.0.0.1", "user" + i);
+        }
+        for (int i = 0; i < 3; i++) {
+            assertThrows(HttpClientErrorException.TooManyRequests.class, () -> loginRateLimiter.checkLimit("10.0.0.1", "victim"));
+        }
+
+        // Act & Assert
+        for (int i = 0; i < 3; i++) {
+            assertDoesNotThrow(() -> loginRateLimiter.checkLimit("10.0.0.2", "victim"));
+        }
+    }
+
+    @Test
+    void syncWithRedis_OtherNodesSpentTokens_DrainsLocalBucket() {
+        // Arrange
+        loginRateLimiter.checkLimit("10.0.0.1", null);
+        when(stringRedisTemplate.executePipelined(any(RedisCallback.class))).thenReturn(List.of(3L, true));
+
+        // Act
+        loginRateLimiter.syncWithRedis();
+
+        // Assert
+        assertThat(loginRateLimiter.tryAcquire("IP:10.0.0.1")).isFalse();
+    }
+
+    @Test
+    void syncWithRedis_NothingConsumed_SkipsRedis() {
+        // Act
+        loginRateLimiter.syncWithRedis();
+
+        // Assert
+        verifyNoInteractions(stringRedisTemplate);
+    }
+}
@@ -0,0 +1,128 @@
+package com.ady4k.todoistapi.security;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TokenDenylistTest {
+    @Mock
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Mock
+    private ValueOperations<String, String> valueOperations;
+
+    @Mock
+    private RedisMessageListenerContainer listenerContainer;
+
+    private TokenDenylist tokenDenylist;
+
+    @BeforeEach
+    void setUp() {
+        tokenDenylist = new TokenDenylist(stringRedisTemplate, listenerContainer, true);
+    }
+
+    @Test
+    void revoke_ActiveToken_IsRevokedAndReplicated() {
+        // Arrange
+        long expiresAt = System.currentTimeMillis() + 60_000;
+        when(stringRedisTemplate.opsForValue()).thenReturn(valueOperations);
+
+        // Act
+        tokenDenylist.revoke("jti-1", expiresAt);
+
+        // Assert
+        assertThat(tokenDenylist.isRevoked("jti-1")).isTrue();
+        assertThat(tokenDenylist.isRevoked("jti-2")).isFalse();
+        verify(valueOperations, times(1)).set(eq("TOKEN:REVOKED:jti-1"), eq(Long.toString(expiresAt)), any(Duration.class));
+        verify(stringRedisTemplate, times(1)).convertAndSend(TokenDenylist.REVOCATION_CHANNEL, "jti-1:" + expiresAt);
+    }
+
+    @Test
+    void revoke_NotReplicated_StaysOnThisNode() {
+        // Arrange
+        TokenDenylist localDenylist = new TokenDenylist(stringRedisTemplate, listenerContainer, false);
+
+        // Act
+        localDenylist.revoke("jti-1", System.currentTimeMillis() + 60_000);
+
+        // Assert
+        assertThat(localDenylist.isRevoked("jti-1")).isTrue();
+        verifyNoInteractions(stringRedisTemplate);
+    }
+
+    @Test
+    void resync_RevocationMissedOverPubSub_IsLoadedFromRedis() {
+        // Arrange
+        long expiresAt = System.currentTimeMillis() + 60_000;
+        Cursor<String> cursor = mock();
+        when(cursor.hasNext()).thenReturn(true, false);
+        when(cursor.next()).thenReturn("TOKEN:REVOKED:jti-1");
+        when(stringRedisTemplate.scan(any(ScanOptions.class))).thenReturn(cursor);
+        when(stringRedisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.multiGet(List.of("TOKEN:REVOKED:jti-1"))).thenReturn(List.of(Long.toString(expiresAt)));
+
+        // Act
+        tokenDenylist.resync();
+
+        // Assert
+        assertThat(tokenDenylist.isRevoked("jti-1")).isTrue();
+        verify(cursor, times(1)).close();
+    }
+
+    @Test
+    void revoke_AlreadyExpiredToken_IsIgnored() {
+        // Act
+        tokenDenylist.revoke("jti-1", System.currentTimeMillis() - 1);
+
+        // Assert
+        assertThat(tokenDenylist.isRevoked("jti-1")).isFalse();
+        verify(stringRedisTemplate, never()).convertAndSend(anyString(), anyString());
+    }
+
+    @Test
+    void onMessage_RevocationFromOtherNode_IsRevokedLocally() {
+        // Arrange
+        String body = "jti-1:" + (System.currentTimeMillis() + 60_000);
+
+        // Act
+        tokenDenylist.onMessage(new DefaultMessage(TokenDenylist.REVOCATION_CHANNEL.getBytes(StandardCharsets.UTF_8),
+                body.getBytes(StandardCharsets.UTF_8)), null);
+
+        // Assert
+        assertThat(tokenDenylist.isRevoked("jti-1")).isTrue();
+    }
+
+    @Test
+    void purgeExpired_BucketsInThePast_AreDropped() {
+        // Arrange
+        String body = "jti-1:" + (System.currentTimeMillis() - 5 * 60_000);
+        tokenDenylist.onMessage(new DefaultMessage(TokenDenylist.REVOCATION_CHANNEL.getBytes(StandardCharsets.UTF_8),
+                body.getBytes(StandardCharsets.UTF_8)), null);
+
+        // Act
+        tokenDenylist.purgeExpired();
+
+        // Assert
+        assertThat(tokenDenylist.isRevoked("jti-1")).isFalse();
+        assertThat(tokenDenylist.size()).isZero();
+    }
+}
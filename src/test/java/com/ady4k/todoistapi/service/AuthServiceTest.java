@@ -1,9 +1,11 @@
 package com.ady4k.todoistapi.service;
 
 import com.ady4k.todoistapi.dto.AuthRequest;
+import com.ady4k.todoistapi.dto.AuthResponse;
 import com.ady4k.todoistapi.dto.UserDto;
 import com.ady4k.todoistapi.model.User;
-import com.ady4k.todoistapi.repository.UserRepository;
+import com.ady4k.todoistapi.security.JwtUtil;
+import com.ady4k.todoistapi.security.VerifiedToken;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -13,13 +15,16 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
 
-import java.util.NoSuchElementException;
-import java.util.Optional;
+import java.util.Date;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -27,15 +32,15 @@ class AuthServiceTest {
     @InjectMocks
     private AuthService authService;
 
-    @Mock
-    private UserRepository userRepository;
-
     @Mock
     private AuthenticationManager authenticationManager;
 
     @Mock
     private TokenService tokenService;
 
+    @Mock
+    private JwtUtil jwtUtil;
+
     private User user;
     private AuthRequest authRequest;
 
@@ -48,25 +53,43 @@ class AuthServiceTest {
     @Test
     void loginByCredentials_AuthenticatesSuccessfully_ReturnsToken() {
         // Arrange
-        String expected = "token";
-        when(userRepository.findByUsername(any(String.class))).thenReturn(Optional.of(user));
-        when(tokenService.getOrCreateToken(any(UserDto.class))).thenReturn(expected);
+        when(authenticationManager.authenticate(any(UsernamePasswordAuthenticationToken.class)))
+                .thenReturn(new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities()));
+        when(tokenService.getOrCreateToken(new UserDto(1L, "test"))).thenReturn("token");
+        when(tokenService.createRefreshToken(new UserDto(1L, "test"))).thenReturn("refresh");
+
+        // Act
+        AuthResponse result = authService.loginByCredentials(authRequest);
+
+        // Assert
+        assertThat(result).isNotNull();
+        assertThat(result.getToken()).isEqualTo("token");
+        assertThat(result.getRefreshToken()).isEqualTo("refresh");
+    }
+
+    @Test
+    void refresh_ValidRefreshToken_ReturnsAccessAndRotatedToken() {
+        // Arrange
+        when(tokenService.rotateRefreshToken("refresh")).thenReturn(new TokenService.RefreshGrant("test", "rotated"));
+        when(tokenService.getOrCreateToken(any(UserDto.class))).thenReturn("token");
 
         // Act
-        String result = authService.loginByCredentials(authRequest);
+        AuthResponse result = authService.refresh("refresh");
 
         // Assert
-        assertThat(result).isNotNull().isEqualTo(expected);
+        assertThat(result.getToken()).isEqualTo("token");
+        assertThat(result.getRefreshToken()).isEqualTo("rotated");
+        verify(authenticationManager, never()).authenticate(any());
     }
 
     @Test
     void loginByCredentials_UsernameNotExisting_Throws() {
         // Arrange
-        when(userRepository.findByUsername(any(String.class))).thenThrow(new NoSuchElementException("Missing user"));
+        when(authenticationManager.authenticate(any(UsernamePasswordAuthenticationToken.class))).thenThrow(new UsernameNotFoundException("Missing user"));
 
         // Act & Assert
-        NoSuchElementException thrown = assertThrows(
-                NoSuchElementException.class,
+        UsernameNotFoundException thrown = assertThrows(
+                UsernameNotFoundException.class,
                 () -> authService.loginByCredentials(authRequest),
                 "Expected authService.loginByCredentials(authRequest) to throw but it didn't"
         );
@@ -86,4 +109,17 @@ class AuthServiceTest {
         );
         assertThat(thrown).hasMessageContaining("Wrong credentials");
     }
+
+    @Test
+    void logout_ValidToken_RevokesIt() {
+        // Arrange
+        VerifiedToken verifiedToken = new VerifiedToken("token", "jti-1", "test", new Date(), new Date(), null);
+        when(jwtUtil.verify("token")).thenReturn(verifiedToken);
+
+        // Act
+        authService.logout("token");
+
+        // Assert
+        verify(tokenService, times(1)).revokeToken(verifiedToken);
+    }
 }
@@ -0,0 +1,122 @@
+package com.ady4k.todoistapi.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CacheInvalidationBusTest {
+    @Mock
+    private RedisTemplate<String, byte[]> binaryRedisTemplate;
+
+    @Mock
+    private RedisMessageListenerContainer listenerContainer;
+
+    @Mock
+    private CacheService<Object> localCache;
+
+    private CacheInvalidationBus invalidationBus;
+
+    @BeforeEach
+    void setUp() {
+        invalidationBus = new CacheInvalidationBus(binaryRedisTemplate, listenerContainer, true, 2);
+        invalidationBus.register("users", localCache);
+    }
+
+    @Test
+    void flush_RepeatedKeys_AreCoalescedIntoOneMessage() {
+        // Arrange
+        invalidationBus.invalidate("users", "alice");
+        invalidationBus.invalidate("users", "alice");
+
+        // Act
+        invalidationBus.flush();
+        invalidationBus.flush();
+
+        // Assert
+        verify(binaryRedisTemplate, times(1)).convertAndSend(eq(CacheInvalidationBus.INVALIDATION_CHANNEL), any(byte[].class));
+    }
+
+    @Test
+    void flush_MoreKeysThanBatchSize_SplitsIntoBatches() {
+        // Arrange
+        invalidationBus.invalidate("users", "alice");
+        invalidationBus.invalidate("users", "bob");
+        invalidationBus.invalidate("users", "carol");
+
+        // Act
+        invalidationBus.flush();
+
+        // Assert
+        verify(binaryRedisTemplate, times(2)).convertAndSend(eq(CacheInvalidationBus.INVALIDATION_CHANNEL), any(byte[].class));
+    }
+
+    @Test
+    void onMessage_FromOtherNode_EvictsKeysAndClears() {
+        // Arrange
+        CacheInvalidationBus otherNode = new CacheInvalidationBus(binaryRedisTemplate, listenerContainer, true, 500);
+        otherNode.invalidate("users", "alice");
+        otherNode.flush();
+        otherNode.invalidate("users", "bob");
+        otherNode.invalidateAll("users");
+        otherNode.flush();
+        ArgumentCaptor<byte[]> messages = ArgumentCaptor.forClass(byte[].class);
+        verify(binaryRedisTemplate, times(2)).convertAndSend(anyString(), messages.capture());
+
+        // Act
+        for (byte[] body : messages.getAllValues()) {
+            invalidationBus.onMessage(new DefaultMessage(channel(), body), null);
+        }
+
+        // Assert
+        verify(localCache, times(1)).evict("alice");
+        verify(localCache, never()).evict("bob");
+        verify(localCache, times(1)).clear();
+    }
+
+    @Test
+    void onMessage_FromSameNode_IsIgnored() {
+        // Arrange
+        invalidationBus.invalidate("users", "alice");
+        invalidationBus.flush();
+        ArgumentCaptor<byte[]> message = ArgumentCaptor.forClass(byte[].class);
+        verify(binaryRedisTemplate).convertAndSend(anyString(), message.capture());
+
+        // Act
+        invalidationBus.onMessage(new DefaultMessage(channel(), message.getValue()), null);
+
+        // Assert
+        verifyNoInteractions(localCache);
+    }
+
+    @Test
+    void invalidate_Disabled_PublishesNothing() {
+        // Arrange
+        CacheInvalidationBus disabled = new CacheInvalidationBus(binaryRedisTemplate, listenerContainer, false, 500);
+
+        // Act
+        disabled.subscribe();
+        disabled.invalidate("users", "alice");
+        disabled.flush();
+
+        // Assert
+        verifyNoInteractions(binaryRedisTemplate, listenerContainer);
+    }
+
+    private static byte[] channel() {
+        return CacheInvalidationBus.INVALIDATION_CHANNEL.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,167 @@
+package com.ady4k.todoistapi.service;
+
+import com.ady4k.todoistapi.service.codec.StringCacheCodec;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CacheSnapshotStoreTest {
+    private static final Duration TTL = Duration.ofMinutes(5);
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    void saveAll_ThenRegisterOnNewNode_RestoresEntriesWithRemainingTtl() {
+        // Arrange
+        CaffeineCacheService<String> before = new CaffeineCacheService<>(TTL, 100);
+        before.put("a", "1");
+        before.put("b", "2", Duration.ofSeconds(10));
+        before.putAbsent("missing", Duration.ofSeconds(30));
+        CacheSnapshotStore shuttingDown = new CacheSnapshotStore(true, directory, 100, 300);
+        shuttingDown.register("users", before, new StringCacheCodec());
+        shuttingDown.saveAll();
+        CaffeineCacheService<String> after = new CaffeineCacheService<>(TTL, 100);
+
+        // Act
+        new CacheSnapshotStore(true, directory, 100, 300).register("users", after, new StringCacheCodec());
+
+        // Assert
+        assertThat(after.get("a")).isEqualTo("1");
+        assertThat(after.get("b")).isEqualTo("2");
+        assertThat(after.isMarkedAbsent("missing")).isFalse();
+        assertThat(after.hottest(10))
+                .filteredOn(entry -> entry.key().equals("b"))
+                .singleElement()
+                .satisfies(entry -> assertThat(entry.remainingTtl()).isLessThanOrEqualTo(Duration.ofSeconds(10)));
+        assertThat(directory.resolve("users.snapshot")).doesNotExist();
+    }
+
+    @Test
+    void register_EntryExpiredSinceSnapshot_SkipsIt() throws InterruptedException {
+        // Arrange
+        CaffeineCacheService<String> before = new CaffeineCacheService<>(TTL, 100);
+        before.put("short", "1", Duration.ofMillis(30));
+        before.put("long", "2");
+        CacheSnapshotStore shuttingDown = new CacheSnapshotStore(true, directory, 100, 300);
+        shuttingDown.register("users", before, new StringCacheCodec());
+        shuttingDown.saveAll();
+        Thread.sleep(60);
+        CaffeineCacheService<String> after = new CaffeineCacheService<>(TTL, 100);
+
+        // Act
+        new CacheSnapshotStore(true, directory, 100, 300).register("users", after, new StringCacheCodec());
+
+        // Assert
+        assertThat(after.get("short")).isNull();
+        assertThat(after.get("long")).isEqualTo("2");
+    }
+
+    @Test
+    void register_SnapshotOlderThanMaxAge_IgnoresIt() throws InterruptedException {
+        // Arrange
+        CaffeineCacheService<String> before = new CaffeineCacheService<>(TTL, 100);
+        before.put("a", "1");
+        CacheSnapshotStore shuttingDown = new CacheSnapshotStore(true, directory, 100, 0);
+        shuttingDown.register("users", before, new StringCacheCodec());
+        shuttingDown.saveAll();
+        Thread.sleep(10);
+        CaffeineCacheService<String> after = new CaffeineCacheService<>(TTL, 100);
+
+        // Act
+        new CacheSnapshotStore(true, directory, 100, 0).register("users", after, new StringCacheCodec());
+
+        // Assert
+        assertThat(after.get("a")).isNull();
+    }
+
+    @Test
+    void register_CorruptSnapshot_StartsEmpty() throws IOException {
+        // Arrange
+        Files.write(directory.resolve("users.snapshot"), new byte[]{1, 2, 3});
+        CaffeineCacheService<String> after = new CaffeineCacheService<>(TTL, 100);
+
+        // Act
+        new CacheSnapshotStore(true, directory, 100, 300).register("users", after, new StringCacheCodec());
+
+        // Assert
+        assertThat(after.hottest(10)).isEmpty();
+        assertThat(directory.resolve("users.snapshot")).doesNotExist();
+    }
+
+    @Test
+    void register_NegativeEntryLength_StartsEmpty() throws IOException {
+        // Arrange
+        writeSnapshot(1, "a".getBytes(StandardCharsets.UTF_8), -1);
+        CaffeineCacheService<String> after = new CaffeineCacheService<>(TTL, 100);
+
+        // Act
+        new CacheSnapshotStore(true, directory, 100, 300).register("users", after, new StringCacheCodec());
+
+        // Assert
+        assertThat(after.hottest(10)).isEmpty();
+        assertThat(directory.resolve("users.snapshot")).doesNotExist();
+    }
+
+    @Test
+    void register_EntryLengthBeyondFile_StartsEmpty() throws IOException {
+        // Arrange
+        writeSnapshot(1, "a".getBytes(StandardCharsets.UTF_8), Integer.MAX_VALUE);
+        CaffeineCacheService<String> after = new CaffeineCacheService<>(TTL, 100);
+
+        // Act
+        new CacheSnapshotStore(true, directory, 100, 300).register("users", after, new StringCacheCodec());
+
+        // Assert
+        assertThat(after.hottest(10)).isEmpty();
+        assertThat(directory.resolve("users.snapshot")).doesNotExist();
+    }
+
+    @Test
+    void register_EntryCountBeyondFile_StartsEmpty() throws IOException {
+        // Arrange
+        writeSnapshot(Integer.MAX_VALUE, "a".getBytes(StandardCharsets.UTF_8), 1);
+        CaffeineCacheService<String> after = new CaffeineCacheService<>(TTL, 100);
+
+        // Act
+        new CacheSnapshotStore(true, directory, 100, 300).register("users", after, new StringCacheCodec());
+
+        // Assert
+        assertThat(after.hottest(10)).isEmpty();
+        assertThat(directory.resolve("users.snapshot")).doesNotExist();
+    }
+
+    @Test
+    void saveAll_Disabled_WritesNothing() {
+        // Arrange
+        CaffeineCacheService<String> cache = new CaffeineCacheService<>(TTL, 100);
+        cache.put("a", "1");
+        CacheSnapshotStore store = new CacheSnapshotStore(false, directory, 100, 300);
+        store.register("users", cache, new StringCacheCodec());
+
+        // Act
+        store.saveAll();
+
+        // Assert
+        assertThat(directory.resolve("users.snapshot")).doesNotExist();
+    }
+
+    // A snapshot with a valid header and one entry whose value length is taken as given; the value itself is "1".
+    private void writeSnapshot(int count, byte[] key, int valueLength) throws IOException {
+        long now = System.currentTimeMillis();
+        ByteBuffer buffer = ByteBuffer.allocate(64)
+                .putInt(0x4C31534E).putShort((short) 1).putLong(now).putInt(count)
+                .putLong(now + TTL.toMillis()).putInt(key.length).putInt(valueLength)
+                .put(key).put("1".getBytes(StandardCharsets.UTF_8));
+        Files.write(directory.resolve("users.snapshot"), Arrays.copyOf(buffer.array(), buffer.position()));
+    }
+}
@@ -0,0 +1,649 @@
+package com.ady4k.todoistapi.service;
+
+import com.ady4k.todoistapi.dto.UserDto;
+import com.ady4k.todoistapi.service.codec.UserDtoCacheCodec;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class MultiLayerCacheServiceTest {
+    private static final Duration TTL = Duration.ofMinutes(30);
+    private static final MultiLayerCacheService.Settings SETTINGS = new MultiLayerCacheService.Settings(
+            TTL, Duration.ofSeconds(30), Duration.ofMillis(200), 0.2, 2, Duration.ofMillis(20));
+
+    @Mock
+    private RedisCacheService<UserDto> redisCacheService;
+
+    @Mock
+    private CacheInvalidationBus invalidationBus;
+
+    private CaffeineCacheService<UserDto> caffeineCacheService;
+    private MultiLayerCacheService<UserDto> cacheService;
+
+    @BeforeEach
+    void setUp() {
+        caffeineCacheService = new CaffeineCacheService<>();
+        cacheService = new MultiLayerCacheService<>("users", caffeineCacheService, null, redisCacheService, invalidationBus,
+                SETTINGS, Runnable::run, null);
+    }
+
+    @Test
+    void getOrLoad_ConcurrentMisses_LoadsOnce() throws Exception {
+        // Arrange
+        when(redisCacheService.tryLock(eq("key"), anyString(), any())).thenReturn(true);
+        when(redisCacheService.writeAndUnlock(any(), anyString())).thenReturn(true);
+        CountDownLatch loaderStarted = new CountDownLatch(1);
+        CountDownLatch releaseLoader = new CountDownLatch(1);
+        AtomicInteger loads = new AtomicInteger();
+        ExecutorService callers = Executors.newFixedThreadPool(2);
+
+        // Act
+        Future<UserDto> first = callers.submit(() -> cacheService.getOrLoad("key", key -> {
+            loads.incrementAndGet();
+            loaderStarted.countDown();
+            await(releaseLoader);
+            return new UserDto(1L, "test");
+        }, TTL));
+        loaderStarted.await(5, TimeUnit.SECONDS);
+        Future<UserDto> second = callers.submit(() -> cacheService.getOrLoad("key", key -> {
+            loads.incrementAndGet();
+            return new UserDto(2L, "other");
+        }, TTL));
+        Thread.sleep(50);
+        releaseLoader.countDown();
+
+        // Assert
+        assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo(new UserDto(1L, "test"));
+        assertThat(second.get(5, TimeUnit.SECONDS)).isEqualTo(new UserDto(1L, "test"));
+        assertThat(loads.get()).isEqualTo(1);
+        verify(redisCacheService, times(1)).writeAndUnlock(eq(new RedisCacheService.Write<>("key", new UserDto(1L, "test"), TTL)), anyString());
+        callers.shutdownNow();
+    }
+
+    @Test
+    void getOrLoad_ValueInRedis_BackFillsWithoutLoading() {
+        // Arrange
+        when(redisCacheService.getWithTtl("key"))
+                .thenReturn(new RedisCacheService.CachedValue<>(new UserDto(1L, "test"), TTL.toMillis()));
+
+        // Act
+        UserDto result = cacheService.getOrLoad("key", key -> {
+            throw new AssertionError("loader must not run");
+        }, TTL);
+
+        // Assert
+        assertThat(result).isEqualTo(new UserDto(1L, "test"));
+        assertThat(caffeineCacheService.get("key")).isEqualTo(result);
+        verify(redisCacheService, never()).tryLock(anyString(), anyString(), any());
+    }
+
+    @Test
+    void getOrLoad_RedisEntryNearExpiry_RefreshesAhead() {
+        // Arrange
+        when(redisCacheService.getWithTtl("key"))
+                .thenReturn(new RedisCacheService.CachedValue<>(new UserDto(1L, "old"), 1000));
+        when(redisCacheService.tryLock(eq("key"), anyString(), any())).thenReturn(true);
+        when(redisCacheService.writeAll(any())).thenReturn(true);
+
+        // Act
+        UserDto result = cacheService.getOrLoad("key", key -> new UserDto(1L, "new"), TTL);
+
+        // Assert
+        assertThat(result).isEqualTo(new UserDto(1L, "old"));
+        assertThat(caffeineCacheService.get("key")).isEqualTo(new UserDto(1L, "new"));
+        verify(invalidationBus, never()).invalidate("users", "key");
+        cacheService.flushWrites();
+        verify(redisCacheService, times(1)).writeAll(List.of(new RedisCacheService.Write<>("key", new UserDto(1L, "new"), TTL)));
+        verify(invalidationBus, times(1)).invalidate("users", "key");
+    }
+
+    @Test
+    void getOrLoad_L1EntryNearExpiry_RefreshesAheadWithoutReadingRedis() {
+        // Arrange
+        caffeineCacheService.put("key", new UserDto(1L, "old"), Duration.ofSeconds(1));
+        when(redisCacheService.tryLock(eq("key"), anyString(), any())).thenReturn(true);
+        when(redisCacheService.writeAll(any())).thenReturn(true);
+
+        // Act
+        UserDto result = cacheService.getOrLoad("key", key -> new UserDto(1L, "new"), TTL);
+
+        // Assert
+        assertThat(result).isEqualTo(new UserDto(1L, "old"));
+        assertThat(caffeineCacheService.get("key")).isEqualTo(new UserDto(1L, "new"));
+        assertThat(caffeineCacheService.remainingTtl("key")).isGreaterThan(Duration.ofMinutes(29));
+        verify(redisCacheService, never()).getWithTtl(anyString());
+        cacheService.flushWrites();
+        verify(redisCacheService, times(1)).writeAll(List.of(new RedisCacheService.Write<>("key", new UserDto(1L, "new"), TTL)));
+    }
+
+    @Test
+    void getOrLoad_FreshL1Entry_DoesNotRefresh() {
+        // Arrange
+        caffeineCacheService.put("key", new UserDto(1L, "old"), TTL);
+
+        // Act
+        UserDto result = cacheService.getOrLoad("key", key -> {
+            throw new AssertionError("loader must not run");
+        }, TTL);
+
+        // Assert
+        assertThat(result).isEqualTo(new UserDto(1L, "old"));
+        verifyNoInteractions(redisCacheService);
+    }
+
+    @Test
+    void getOrLoad_OtherNodeHoldsLock_WaitsForItsValue() {
+        // Arrange
+        when(redisCacheService.tryLock(eq("key"), anyString(), any())).thenReturn(false);
+        when(redisCacheService.getWithTtl("key"))
+                .thenReturn(null, new RedisCacheService.CachedValue<>(new UserDto(1L, "test"), TTL.toMillis()));
+
+        // Act
+        UserDto result = cacheService.getOrLoad("key", key -> {
+            throw new AssertionError("loader must not run");
+        }, TTL);
+
+        // Assert
+        assertThat(result).isEqualTo(new UserDto(1L, "test"));
+        cacheService.flushWrites();
+        verify(redisCacheService, never()).writeAll(any());
+    }
+
+    @Test
+    void getOrLoad_LockHolderFailsAndReleasesLock_LoadsWithoutWaitingForTimeout() {
+        // Arrange
+        when(redisCacheService.tryLock(eq("key"), anyString(), any())).thenReturn(false, true);
+        when(redisCacheService.writeAndUnlock(any(), anyString())).thenReturn(true);
+        AtomicInteger loads = new AtomicInteger();
+        long start = System.nanoTime();
+
+        // Act
+        UserDto result = cacheService.getOrLoad("key", key -> {
+            loads.incrementAndGet();
+            return new UserDto(1L, "test");
+        }, TTL);
+
+        // Assert
+        assertThat(result).isEqualTo(new UserDto(1L, "test"));
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(SETTINGS.lockTimeout());
+        assertThat(loads.get()).isEqualTo(1);
+        verify(redisCacheService, times(2)).tryLock(eq("key"), anyString(), any());
+        verify(redisCacheService, times(1)).writeAndUnlock(eq(new RedisCacheService.Write<>("key", result, TTL)), anyString());
+    }
+
+    @Test
+    void getOrLoad_LockNeverReleased_LoadsAfterTimeout() {
+        // Arrange
+        when(redisCacheService.tryLock(eq("key"), anyString(), any())).thenReturn(false);
+
+        // Act
+        UserDto result = cacheService.getOrLoad("key", key -> new UserDto(1L, "test"), TTL);
+
+        // Assert
+        assertThat(result).isEqualTo(new UserDto(1L, "test"));
+        cacheService.flushWrites();
+        verify(redisCacheService, times(1)).writeAll(List.of(new RedisCacheService.Write<>("key", result, TTL)));
+    }
+
+    @Test
+    void getAll_SomeKeysInL1_FetchesOnlyMissesFromRedis() {
+        // Arrange
+        caffeineCacheService.put("a", new UserDto(1L, "a"));
+        when(redisCacheService.getAllWithTtl(List.of("b", "c")))
+                .thenReturn(Map.of("b", new RedisCacheService.CachedValue<>(new UserDto(2L, "b"), TTL.toMillis())));
+
+        // Act
+        Map<String, UserDto> result = cacheService.getAll(List.of("a", "b", "c"));
+
+        // Assert
+        assertThat(result).containsOnlyKeys("a", "b");
+        assertThat(caffeineCacheService.get("b")).isEqualTo(new UserDto(2L, "b"));
+        verify(redisCacheService, times(1)).getAllWithTtl(any());
+        verify(redisCacheService, never()).getWithTtl(anyString());
+    }
+
+    @Test
+    void getAll_AllKeysInL1_SkipsRedis() {
+        // Arrange
+        caffeineCacheService.put("a", new UserDto(1L, "a"));
+
+        // Act
+        Map<String, UserDto> result = cacheService.getAll(List.of("a"));
+
+        // Assert
+        assertThat(result).containsOnlyKeys("a");
+        verifyNoInteractions(redisCacheService);
+    }
+
+    @Test
+    void putAll_WritesBothLayersInOneRedisCall() {
+        // Arrange
+        Map<String, UserDto> entries = Map.of("a", new UserDto(1L, "a"), "b", new UserDto(2L, "b"));
+
+        // Act
+        cacheService.putAll(entries, TTL);
+
+        // Assert
+        assertThat(caffeineCacheService.getAll(entries.keySet())).isEqualTo(entries);
+        verify(redisCacheService, times(1)).putAll(entries, TTL);
+        verify(invalidationBus, times(2)).invalidate(eq("users"), anyString());
+    }
+
+    @Test
+    void get_BackFilledFromRedis_ExpiresWithRedisEntry() throws InterruptedException {
+        // Arrange
+        when(redisCacheService.getWithTtl("key"))
+                .thenReturn(new RedisCacheService.CachedValue<>(new UserDto(1L, "test"), 50), (RedisCacheService.CachedValue<UserDto>) null);
+
+        // Act
+        UserDto first = cacheService.get("key");
+        Thread.sleep(100);
+        UserDto second = cacheService.get("key");
+
+        // Assert
+        assertThat(first).isEqualTo(new UserDto(1L, "test"));
+        assertThat(second).isNull();
+        verify(redisCacheService, times(2)).getWithTtl("key");
+    }
+
+    @Test
+    void put_WithTtl_AppliesTtlToL1() throws InterruptedException {
+        // Act
+        cacheService.put("key", new UserDto(1L, "test"), Duration.ofMillis(50));
+        Thread.sleep(100);
+
+        // Assert
+        assertThat(caffeineCacheService.get("key")).isNull();
+    }
+
+    @Test
+    void getOrLoad_MissingKey_CachesAbsenceInBothLayers() {
+        // Arrange
+        when(redisCacheService.tryLock(eq("key"), anyString(), any())).thenReturn(true);
+        when(redisCacheService.writeAndUnlock(any(), anyString())).thenReturn(true);
+        AtomicInteger loads = new AtomicInteger();
+
+        // Act
+        UserDto first = cacheService.getOrLoad("key", key -> {
+            loads.incrementAndGet();
+            return null;
+        }, TTL);
+        UserDto second = cacheService.getOrLoad("key", key -> {
+            loads.incrementAndGet();
+            return null;
+        }, TTL);
+
+        // Assert
+        assertThat(first).isNull();
+        assertThat(second).isNull();
+        assertThat(loads.get()).isEqualTo(1);
+        verify(redisCacheService, times(1)).writeAndUnlock(eq(new RedisCacheService.Write<>("key", null, Duration.ofSeconds(30))), anyString());
+        verify(redisCacheService, times(1)).getWithTtl("key");
+    }
+
+    @Test
+    void getOrLoad_AbsentMarkerInRedis_ReturnsNullWithoutLoading() {
+        // Arrange
+        when(redisCacheService.getWithTtl("key")).thenReturn(new RedisCacheService.CachedValue<>(null, 10_000));
+
+        // Act
+        UserDto result = cacheService.getOrLoad("key", key -> {
+            throw new AssertionError("loader must not run");
+        }, TTL);
+
+        // Assert
+        assertThat(result).isNull();
+        assertThat(caffeineCacheService.isMarkedAbsent("key")).isTrue();
+        verify(redisCacheService, never()).tryLock(anyString(), anyString(), any());
+    }
+
+    @Test
+    void get_AbsentMarkerInL1_ReturnsNullWithoutRedis() {
+        // Arrange
+        caffeineCacheService.putAbsent("key", Duration.ofSeconds(30));
+
+        // Act
+        UserDto result = cacheService.get("key");
+
+        // Assert
+        assertThat(result).isNull();
+        verifyNoInteractions(redisCacheService);
+    }
+
+    @Test
+    void put_AfterAbsentMarker_ReplacesIt() {
+        // Arrange
+        caffeineCacheService.putAbsent("key", Duration.ofSeconds(30));
+
+        // Act
+        cacheService.put("key", new UserDto(1L, "test"));
+
+        // Assert
+        assertThat(caffeineCacheService.isMarkedAbsent("key")).isFalse();
+        assertThat(cacheService.getOrLoad("key", key -> null, TTL)).isEqualTo(new UserDto(1L, "test"));
+    }
+
+    @Test
+    void getOrLoad_LockHolder_StoresValueInTheCallThatReleasesTheLock() {
+        // Arrange
+        when(redisCacheService.tryLock(eq("key"), anyString(), any())).thenReturn(true);
+        when(redisCacheService.writeAndUnlock(any(), anyString())).thenReturn(true);
+
+        // Act
+        UserDto result = cacheService.getOrLoad("key", key -> new UserDto(1L, "test"), TTL);
+        cacheService.flushWrites();
+
+        // Assert
+        verify(redisCacheService, times(1)).writeAndUnlock(eq(new RedisCacheService.Write<>("key", result, TTL)), anyString());
+        verify(redisCacheService, never()).unlock(anyString(), anyString());
+        verify(redisCacheService, never()).writeAll(any());
+        verify(invalidationBus, times(1)).invalidate("users", "key");
+    }
+
+    @Test
+    void getOrLoad_LoaderThrows_ReleasesLockWithoutWriting() {
+        // Arrange
+        when(redisCacheService.tryLock(eq("key"), anyString(), any())).thenReturn(true);
+
+        // Act & Assert
+        assertThatThrownBy(() -> cacheService.getOrLoad("key", key -> {
+            throw new IllegalStateException("database down");
+        }, TTL)).isInstanceOf(IllegalStateException.class);
+        verify(redisCacheService, times(1)).unlock(eq("key"), anyString());
+        verify(redisCacheService, never()).writeAndUnlock(any(), anyString());
+    }
+
+    @Test
+    void getOrLoad_RefreshedEntries_AreNotSentBeforeFlush() {
+        // Arrange
+        nearExpiryInRedis("a");
+        nearExpiryInRedis("b");
+        when(redisCacheService.writeAll(any())).thenReturn(true);
+
+        // Act
+        cacheService.getOrLoad("a", key -> new UserDto(1L, "a"), TTL);
+        cacheService.getOrLoad("b", key -> new UserDto(2L, "b"), TTL);
+
+        // Assert
+        verify(redisCacheService, never()).writeAll(any());
+        verify(redisCacheService, never()).put(anyString(), any(), any());
+        cacheService.flushWrites();
+        verify(redisCacheService, times(1)).writeAll(argThat(writes -> writes.size() == 2));
+        verify(invalidationBus, times(2)).invalidate(eq("users"), anyString());
+    }
+
+    @Test
+    void flushWrites_RedisUnavailable_PublishesNoInvalidation() {
+        // Arrange
+        nearExpiryInRedis("key");
+        when(redisCacheService.writeAll(any())).thenReturn(false);
+        cacheService.getOrLoad("key", key -> new UserDto(1L, "test"), TTL);
+
+        // Act
+        cacheService.flushWrites();
+
+        // Assert
+        verify(redisCacheService, times(1)).writeAll(any());
+        verify(invalidationBus, never()).invalidate(anyString(), anyString());
+    }
+
+    @Test
+    void getOrLoad_SameKeyQueuedTwice_FlushesLatestWriteOnly() {
+        // Arrange
+        nearExpiryInRedis("key");
+        cacheService.getOrLoad("key", key -> new UserDto(1L, "old"), TTL);
+        caffeineCacheService.evict("key");
+
+        // Act
+        cacheService.getOrLoad("key", key -> new UserDto(1L, "new"), TTL);
+        cacheService.flushWrites();
+
+        // Assert
+        verify(redisCacheService, times(1)).writeAll(List.of(new RedisCacheService.Write<>("key", new UserDto(1L, "new"), TTL)));
+    }
+
+    @Test
+    void getOrLoad_WriteQueueFull_KeepsValueInL1AndDropsL2Write() {
+        // Arrange
+        nearExpiryInRedis("a");
+        nearExpiryInRedis("b");
+        nearExpiryInRedis("c");
+        cacheService.getOrLoad("a", key -> new UserDto(1L, "a"), TTL);
+        cacheService.getOrLoad("b", key -> new UserDto(2L, "b"), TTL);
+
+        // Act
+        cacheService.getOrLoad("c", key -> new UserDto(3L, "c"), TTL);
+        cacheService.flushWrites();
+
+        // Assert
+        assertThat(caffeineCacheService.get("c")).isEqualTo(new UserDto(3L, "c"));
+        verify(redisCacheService, times(1)).writeAll(argThat(writes -> writes.size() == 2
+                && writes.stream().noneMatch(write -> write.key().equals("c"))));
+    }
+
+    @Test
+    void put_PendingWriteForKey_ReplacesIt() {
+        // Arrange
+        nearExpiryInRedis("key");
+        cacheService.getOrLoad("key", key -> new UserDto(1L, "loaded"), TTL);
+
+        // Act
+        cacheService.put("key", new UserDto(1L, "written"));
+        cacheService.flushWrites();
+
+        // Assert
+        verify(redisCacheService, times(1)).put("key", new UserDto(1L, "written"), TTL);
+        verify(redisCacheService, never()).writeAll(any());
+    }
+
+    @Test
+    void put_WhileFlushSendsSameKey_WaitsSoItsWriteLandsLast() throws Exception {
+        // Arrange
+        nearExpiryInRedis("key");
+        cacheService.getOrLoad("key", key -> new UserDto(1L, "loaded"), TTL);
+        CountDownLatch flushSending = new CountDownLatch(1);
+        CountDownLatch releaseFlush = new CountDownLatch(1);
+        when(redisCacheService.writeAll(any())).thenAnswer(invocation -> {
+            flushSending.countDown();
+            await(releaseFlush);
+            return true;
+        });
+        ExecutorService threads = Executors.newFixedThreadPool(2);
+        Future<?> flush = threads.submit(cacheService::flushWrites);
+        flushSending.await(5, TimeUnit.SECONDS);
+
+        // Act
+        Future<?> put = threads.submit(() -> cacheService.put("key", new UserDto(1L, "written")));
+        Thread.sleep(50);
+        boolean putWaited = !put.isDone();
+        releaseFlush.countDown();
+        flush.get(5, TimeUnit.SECONDS);
+        put.get(5, TimeUnit.SECONDS);
+
+        // Assert
+        assertThat(putWaited).isTrue();
+        InOrder redisWrites = inOrder(redisCacheService);
+        redisWrites.verify(redisCacheService).writeAll(List.of(new RedisCacheService.Write<>("key", new UserDto(1L, "loaded"), TTL)));
+        redisWrites.verify(redisCacheService).put("key", new UserDto(1L, "written"), TTL);
+        assertThat(caffeineCacheService.get("key")).isEqualTo(new UserDto(1L, "written"));
+        threads.shutdownNow();
+    }
+
+    @Test
+    void put_DuringRefreshLoad_DropsTheRefreshedValue() {
+        // Arrange
+        nearExpiryInRedis("key");
+
+        // Act
+        cacheService.getOrLoad("key", key -> {
+            cacheService.put("key", new UserDto(1L, "written"));
+            return new UserDto(1L, "stale");
+        }, TTL);
+        cacheService.flushWrites();
+
+        // Assert
+        verify(redisCacheService, never()).writeAll(any());
+        assertThat(caffeineCacheService.get("key")).isEqualTo(new UserDto(1L, "written"));
+    }
+
+    @Test
+    void put_WhileRefreshStoresLoadedValue_WaitsSoItsValueStaysInL1() throws Exception {
+        // Arrange
+        nearExpiryInRedis("key");
+        CaffeineCacheService<UserDto> heapTier = spy(caffeineCacheService);
+        // A long lock timeout, so the put cannot give up waiting before the refresh has stored its value.
+        MultiLayerCacheService.Settings settings = new MultiLayerCacheService.Settings(
+                TTL, Duration.ofSeconds(30), Duration.ofSeconds(5), 0.2, 2, Duration.ofMillis(20));
+        MultiLayerCacheService<UserDto> spiedCacheService = new MultiLayerCacheService<>("users", heapTier, null,
+                redisCacheService, invalidationBus, settings, Runnable::run, null);
+        ExecutorService writer = Executors.newSingleThreadExecutor();
+        CountDownLatch putFinished = new CountDownLatch(1);
+        // The put starts once the refresh has passed its version check and is about to store the loaded value.
+        doAnswer(invocation -> {
+            if (new UserDto(1L, "stale").equals(invocation.getArgument(1))) {
+                writer.execute(() -> {
+                    spiedCacheService.put("key", new UserDto(1L, "written"));
+                    putFinished.countDown();
+                });
+                putFinished.await(100, TimeUnit.MILLISECONDS);
+            }
+            return invocation.callRealMethod();
+        }).when(heapTier).put(eq("key"), any(), any());
+
+        // Act
+        spiedCacheService.getOrLoad("key", key -> new UserDto(1L, "stale"), TTL);
+        boolean putDone = putFinished.await(5, TimeUnit.SECONDS);
+        spiedCacheService.flushWrites();
+
+        // Assert
+        assertThat(putDone).isTrue();
+        assertThat(heapTier.get("key")).isEqualTo(new UserDto(1L, "written"));
+        verify(redisCacheService, never()).writeAll(any());
+        writer.shutdownNow();
+    }
+
+    @Test
+    void put_DuringLockHolderLoad_ReleasesLockWithoutWritingStaleValue() {
+        // Arrange
+        when(redisCacheService.tryLock(eq("key"), anyString(), any())).thenReturn(true);
+
+        // Act
+        UserDto result = cacheService.getOrLoad("key", key -> {
+            cacheService.put("key", new UserDto(1L, "written"));
+            return new UserDto(1L, "stale");
+        }, TTL);
+
+        // Assert
+        assertThat(result).isEqualTo(new UserDto(1L, "stale"));
+        verify(redisCacheService, never()).writeAndUnlock(any(), anyString());
+        verify(redisCacheService, times(1)).unlock(eq("key"), anyString());
+        assertThat(caffeineCacheService.get("key")).isEqualTo(new UserDto(1L, "written"));
+    }
+
+    @Test
+    void get_OffHeapHit_PromotesToL1WithoutRedis() {
+        // Arrange
+        OffHeapCacheService<UserDto> offHeapCacheService = new OffHeapCacheService<>(new UserDtoCacheCodec(), TTL, 1024 * 1024);
+        MultiLayerCacheService<UserDto> tieredCacheService = new MultiLayerCacheService<>("users", caffeineCacheService,
+                offHeapCacheService, redisCacheService, invalidationBus, SETTINGS, Runnable::run, null);
+        offHeapCacheService.put("key", new UserDto(1L, "test"));
+
+        // Act
+        UserDto result = tieredCacheService.get("key");
+
+        // Assert
+        assertThat(result).isEqualTo(new UserDto(1L, "test"));
+        assertThat(caffeineCacheService.get("key")).isEqualTo(result);
+        verifyNoInteractions(redisCacheService);
+        tieredCacheService.close();
+    }
+
+    @Test
+    void evict_WithOffHeapTier_RemovesFromBothLocalTiers() {
+        // Arrange
+        OffHeapCacheService<UserDto> offHeapCacheService = new OffHeapCacheService<>(new UserDtoCacheCodec(), TTL, 1024 * 1024);
+        MultiLayerCacheService<UserDto> tieredCacheService = new MultiLayerCacheService<>("users", caffeineCacheService,
+                offHeapCacheService, redisCacheService, invalidationBus, SETTINGS, Runnable::run, null);
+        tieredCacheService.put("key", new UserDto(1L, "test"));
+
+        // Act
+        tieredCacheService.evict("key");
+
+        // Assert
+        assertThat(caffeineCacheService.get("key")).isNull();
+        assertThat(offHeapCacheService.get("key")).isNull();
+        tieredCacheService.close();
+    }
+
+    @Test
+    void evict_WithOffHeapTier_EvictsOffHeapBeforeHeap() {
+        // Arrange
+        CaffeineCacheService<UserDto> heapTier = spy(caffeineCacheService);
+        OffHeapCacheService<UserDto> offHeapTier = spy(new OffHeapCacheService<>(new UserDtoCacheCodec(), TTL, 1024 * 1024));
+        MultiLayerCacheService<UserDto> tieredCacheService = new MultiLayerCacheService<>("users", heapTier,
+                offHeapTier, redisCacheService, invalidationBus, SETTINGS, Runnable::run, null);
+
+        // Act
+        tieredCacheService.evict("key");
+        tieredCacheService.clear();
+
+        // Assert
+        InOrder tiers = inOrder(offHeapTier, heapTier);
+        tiers.verify(offHeapTier).evict("key");
+        tiers.verify(heapTier).evict("key");
+        tiers.verify(offHeapTier).clear();
+        tiers.verify(heapTier).clear();
+        tieredCacheService.close();
+    }
+
+    @Test
+    void constructor_WithOffHeapTier_RegistersOffHeapBeforeHeapForRemoteInvalidation() {
+        // Arrange
+        OffHeapCacheService<UserDto> offHeapCacheService = new OffHeapCacheService<>(new UserDtoCacheCodec(), TTL, 1024 * 1024);
+
+        // Act
+        MultiLayerCacheService<UserDto> tieredCacheService = new MultiLayerCacheService<>("users", caffeineCacheService,
+                offHeapCacheService, redisCacheService, invalidationBus, SETTINGS, Runnable::run, null);
+
+        // Assert
+        InOrder registrations = inOrder(invalidationBus);
+        registrations.verify(invalidationBus).register("users", offHeapCacheService);
+        registrations.verify(invalidationBus).register("users", caffeineCacheService);
+        tieredCacheService.close();
+    }
+
+    // The entry is about to expire in Redis, so getOrLoad serves it and queues a refresh through the write-behind queue.
+    private void nearExpiryInRedis(String key) {
+        when(redisCacheService.getWithTtl(key)).thenReturn(new RedisCacheService.CachedValue<>(new UserDto(0L, key), 1000));
+        when(redisCacheService.tryLock(eq(key), anyString(), any())).thenReturn(true);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.ady4k.todoistapi.service;
+
+import com.ady4k.todoistapi.service.codec.StringCacheCodec;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class OffHeapCacheServiceTest {
+    private static final Duration TTL = Duration.ofMinutes(5);
+    private static final long CAPACITY = 1024 * 1024;
+
+    private final OffHeapCacheService<String> cacheService = new OffHeapCacheService<>(new StringCacheCodec(), TTL, CAPACITY);
+
+    @AfterEach
+    void tearDown() {
+        cacheService.close();
+    }
+
+    @Test
+    void put_ThenGet_ReturnsValue() {
+        // Act
+        cacheService.put("key", "value");
+
+        // Assert
+        assertThat(cacheService.get("key")).isEqualTo("value");
+        assertThat(cacheService.getWithTtl("key").remainingTtl()).isPositive().isLessThanOrEqualTo(TTL);
+        assertThat(cacheService.size()).isEqualTo(1);
+    }
+
+    @Test
+    void put_ExistingKey_ReplacesValue() {
+        // Arrange
+        cacheService.put("key", "old");
+
+        // Act
+        cacheService.put("key", "new");
+
+        // Assert
+        assertThat(cacheService.get("key")).isEqualTo("new");
+        assertThat(cacheService.size()).isEqualTo(1);
+    }
+
+    @Test
+    void get_ExpiredEntry_ReturnsNull() throws InterruptedException {
+        // Arrange
+        cacheService.put("key", "value", Duration.ofMillis(20));
+
+        // Act
+        Thread.sleep(50);
+
+        // Assert
+        assertThat(cacheService.get("key")).isNull();
+        assertThat(cacheService.size()).isZero();
+    }
+
+    @Test
+    void evict_OneOfManyKeys_KeepsTheOthersReachable() {
+        // Arrange
+        for (int i = 0; i < 1000; i++) {
+            cacheService.put("key" + i, "value" + i);
+        }
+
+        // Act
+        cacheService.evict("key500");
+
+        // Assert
+        assertThat(cacheService.get("key500")).isNull();
+        for (int i = 0; i < 1000; i++) {
+            if (i != 500) {
+                assertThat(cacheService.get("key" + i)).isEqualTo("value" + i);
+            }
+        }
+    }
+
+    @Test
+    void put_BeyondCapacity_EvictsOldestEntries() {
+        // Arrange
+        int entries = 100_000;
+
+        // Act
+        for (int i = 0; i < entries; i++) {
+            cacheService.put("key" + i, "value" + i);
+        }
+
+        // Assert
+        assertThat(cacheService.size()).isLessThan(entries);
+        assertThat(cacheService.get("key0")).isNull();
+        assertThat(cacheService.get("key" + (entries - 1))).isEqualTo("value" + (entries - 1));
+    }
+
+    @Test
+    void clear_RemovesEverything() {
+        // Arrange
+        cacheService.putAll(Map.of("a", "1", "b", "2"), TTL);
+
+        // Act
+        cacheService.clear();
+
+        // Assert
+        assertThat(cacheService.getAll(List.of("a", "b"))).isEmpty();
+        assertThat(cacheService.size()).isZero();
+    }
+
+    @Test
+    void bindMetrics_ReportsHitsAndMissesUnderOffHeapNames() {
+        // Arrange
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        cacheService.bindMetrics(meterRegistry, "users");
+        cacheService.put("key", "value");
+
+        // Act
+        cacheService.get("key");
+        cacheService.get("missing");
+
+        // Assert
+        assertThat(meterRegistry.get("cache.offheap.gets").tag("result", "hit").functionCounter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("cache.offheap.gets").tag("result", "miss").functionCounter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("cache.offheap.size").gauge().value()).isEqualTo(1);
+        assertThat(meterRegistry.get("cache.offheap.memory.used").gauge().value()).isPositive();
+    }
+
+    @Test
+    void constructor_CapacityTooSmall_Throws() {
+        // Act & Assert
+        assertThatThrownBy(() -> new OffHeapCacheService<>(new StringCacheCodec(), TTL, 1024))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
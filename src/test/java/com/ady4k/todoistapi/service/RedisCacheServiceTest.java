@@ -0,0 +1,218 @@
+package com.ady4k.todoistapi.service;
+
+import com.ady4k.todoistapi.service.codec.StringCacheCodec;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+class RedisCacheServiceTest {
+    private static final Duration TTL = Duration.ofMinutes(5);
+
+    private static RedisServer redisServer;
+    private static LettuceConnectionFactory connectionFactory;
+
+    private RedisTemplate<String, byte[]> redisTemplate;
+
+    @BeforeAll
+    static void startRedis() throws IOException {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        redisServer = RedisServer.newRedisServer().port(port).build();
+        redisServer.start();
+        connectionFactory = new LettuceConnectionFactory(new RedisStandaloneConfiguration("localhost", port));
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+    }
+
+    @AfterAll
+    static void stopRedis() throws IOException {
+        connectionFactory.destroy();
+        redisServer.stop();
+    }
+
+    @BeforeEach
+    void setUp() {
+        RedisTemplate<String, byte[]> template = new RedisTemplate<>();
+        template.setConnectionFactory(connectionFactory);
+        template.setKeySerializer(RedisSerializer.string());
+        template.setValueSerializer(RedisSerializer.byteArray());
+        template.afterPropertiesSet();
+        template.execute((RedisCallback<Object>) connection -> {
+            connection.serverCommands().flushAll();
+            return null;
+        });
+        redisTemplate = spy(template);
+    }
+
+    @Test
+    void clear_RemovesOnlyItsOwnRegion() {
+        // Arrange
+        RedisCacheService<String> users = cache("USER:ID:");
+        RedisCacheService<String> sessions = cache("SESSION:");
+        users.put("1", "a", TTL);
+        users.put("2", "b", TTL);
+        sessions.put("1", "token", TTL);
+        users.tryLock("3", "owner", TTL);
+
+        // Act
+        users.clear();
+
+        // Assert
+        assertThat(users.get("1")).isNull();
+        assertThat(users.get("2")).isNull();
+        assertThat(sessions.get("1")).isEqualTo("token");
+        assertThat(redisTemplate.hasKey("LOCK:USER:ID:3")).isTrue();
+    }
+
+    @Test
+    void clear_PrefixWithGlobCharacters_MatchesItLiterally() {
+        // Arrange
+        RedisCacheService<String> globbed = cache("R[1]*?\\:");
+        RedisCacheService<String> lookalike = cache("R1-x-:");
+        globbed.put("a", "1", TTL);
+        lookalike.put("a", "2", TTL);
+
+        // Act
+        globbed.clear();
+
+        // Assert
+        assertThat(globbed.get("a")).isNull();
+        assertThat(lookalike.get("a")).isEqualTo("2");
+    }
+
+    @Test
+    void clear_ManyKeys_UnlinksInBatches() {
+        // Arrange
+        RedisCacheService<String> users = cache("USER:ID:");
+        Map<String, String> entries = new LinkedHashMap<>();
+        for (int i = 0; i < 2 * RedisCacheService.CLEAR_BATCH_SIZE + 1; i++) {
+            entries.put(Integer.toString(i), "value");
+        }
+        users.putAll(entries, TTL);
+        // The batch list is reused between calls, so its size is recorded when each UNLINK is sent.
+        List<Integer> batchSizes = new ArrayList<>();
+        doAnswer(invocation -> {
+            batchSizes.add(invocation.<Collection<String>>getArgument(0).size());
+            return invocation.callRealMethod();
+        }).when(redisTemplate).unlink(anyCollection());
+
+        // Act
+        users.clear();
+
+        // Assert
+        assertThat(batchSizes).containsExactly(RedisCacheService.CLEAR_BATCH_SIZE, RedisCacheService.CLEAR_BATCH_SIZE, 1);
+        assertThat(redisTemplate.keys("USER:ID:*")).isEmpty();
+    }
+
+    @Test
+    void writeAll_RedisReachable_StoresValuesAndAbsentMarkers() {
+        // Arrange
+        RedisCacheService<String> users = cache("USER:ID:");
+
+        // Act
+        boolean written = users.writeAll(List.of(
+                new RedisCacheService.Write<>("1", "a", TTL),
+                new RedisCacheService.Write<>("2", null, TTL)));
+
+        // Assert
+        assertThat(written).isTrue();
+        assertThat(users.get("1")).isEqualTo("a");
+        assertThat(users.getWithTtl("2").isAbsent()).isTrue();
+    }
+
+    @Test
+    void writeAll_BreakerOpen_ReturnsFalse() {
+        // Arrange
+        RedisCircuitBreaker circuitBreaker = new RedisCircuitBreaker(new SimpleMeterRegistry(), 1, 10_000);
+        circuitBreaker.run("get", () -> {
+            throw new QueryTimeoutException("Redis command timed out");
+        });
+        RedisCacheService<String> users = cache("USER:ID:", circuitBreaker);
+
+        // Act
+        boolean written = users.writeAll(List.of(new RedisCacheService.Write<>("1", "a", TTL)));
+
+        // Assert
+        assertThat(written).isFalse();
+        assertThat(redisTemplate.hasKey("USER:ID:1")).isFalse();
+    }
+
+    @Test
+    void writeAndUnlock_OwnLock_StoresValueAndReleasesLock() {
+        // Arrange
+        RedisCacheService<String> users = cache("USER:ID:");
+        users.tryLock("1", "owner", TTL);
+
+        // Act
+        boolean written = users.writeAndUnlock(new RedisCacheService.Write<>("1", "a", TTL), "owner");
+
+        // Assert
+        assertThat(written).isTrue();
+        assertThat(users.get("1")).isEqualTo("a");
+        assertThat(users.tryLock("1", "next", TTL)).isTrue();
+    }
+
+    @Test
+    void writeAndUnlock_LockTakenOverByOtherOwner_KeepsTheirLock() {
+        // Arrange
+        RedisCacheService<String> users = cache("USER:ID:");
+        users.tryLock("1", "other", TTL);
+
+        // Act
+        users.writeAndUnlock(new RedisCacheService.Write<>("1", "a", TTL), "owner");
+
+        // Assert
+        assertThat(users.get("1")).isEqualTo("a");
+        assertThat(users.tryLock("1", "owner", TTL)).isFalse();
+    }
+
+    @Test
+    void getAndMove_StoredValue_LeavesItOnlyUnderTargetKey() {
+        // Arrange
+        RedisCacheService<String> sessions = cache("SESSION:");
+        sessions.put("REFRESH:abc", "family-1:test", TTL);
+
+        // Act
+        String moved = sessions.getAndMove("REFRESH:abc", "REFRESH:USED:abc", TTL);
+        String movedAgain = sessions.getAndMove("REFRESH:abc", "REFRESH:USED:abc", TTL);
+
+        // Assert
+        assertThat(moved).isEqualTo("family-1:test");
+        assertThat(movedAgain).isNull();
+        assertThat(sessions.get("REFRESH:abc")).isNull();
+        assertThat(sessions.get("REFRESH:USED:abc")).isEqualTo("family-1:test");
+        assertThat(redisTemplate.getExpire("SESSION:REFRESH:USED:abc")).isPositive();
+    }
+
+    private RedisCacheService<String> cache(String keyPrefix) {
+        return cache(keyPrefix, new RedisCircuitBreaker(new SimpleMeterRegistry(), 5, 10_000));
+    }
+
+    private RedisCacheService<String> cache(String keyPrefix, RedisCircuitBreaker circuitBreaker) {
+        return new RedisCacheService<>(redisTemplate, new StringCacheCodec(), keyPrefix, circuitBreaker);
+    }
+}
@@ -0,0 +1,121 @@
+package com.ady4k.todoistapi.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.QueryTimeoutException;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class RedisCircuitBreakerTest {
+    private MeterRegistry meterRegistry;
+    private RedisCircuitBreaker circuitBreaker;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        circuitBreaker = new RedisCircuitBreaker(meterRegistry, 2, 50);
+    }
+
+    @Test
+    void call_RedisFails_ReturnsFallbackAndOpensAfterThreshold() {
+        // Act
+        String first = circuitBreaker.call("get", this::timeout, () -> "fallback");
+        circuitBreaker.call("get", this::timeout, () -> "fallback");
+
+        // Assert
+        assertThat(first).isEqualTo("fallback");
+        assertThat(circuitBreaker.getState()).isEqualTo(RedisCircuitBreaker.State.OPEN);
+        assertThat(circuitBreaker.isAvailable()).isFalse();
+        assertThat(meterRegistry.get("cache.redis.failures").counter().count()).isEqualTo(2);
+        assertThat(meterRegistry.get("cache.redis.breaker.state").gauge().value()).isEqualTo(1);
+    }
+
+    @Test
+    void call_BreakerOpen_SkipsRedisUntilOpenPeriodEnds() throws InterruptedException {
+        // Arrange
+        openBreaker();
+        AtomicInteger calls = new AtomicInteger();
+
+        // Act
+        String whileOpen = circuitBreaker.call("get", () -> "redis-" + calls.incrementAndGet(), () -> "fallback");
+        Thread.sleep(80);
+        String probe = circuitBreaker.call("get", () -> "redis-" + calls.incrementAndGet(), () -> "fallback");
+
+        // Assert
+        assertThat(whileOpen).isEqualTo("fallback");
+        assertThat(probe).isEqualTo("redis-1");
+        assertThat(calls.get()).isEqualTo(1);
+        assertThat(circuitBreaker.getState()).isEqualTo(RedisCircuitBreaker.State.CLOSED);
+        assertThat(meterRegistry.get("cache.redis.fallbacks").tag("operation", "get").counter().count()).isEqualTo(3);
+    }
+
+    @Test
+    void call_FailedProbe_ReopensBreaker() throws InterruptedException {
+        // Arrange
+        openBreaker();
+        Thread.sleep(80);
+
+        // Act
+        circuitBreaker.call("get", this::timeout, () -> "fallback");
+
+        // Assert
+        assertThat(circuitBreaker.getState()).isEqualTo(RedisCircuitBreaker.State.OPEN);
+    }
+
+    @Test
+    void call_NonRedisException_PropagatesWithoutCountingFailure() {
+        // Act & Assert
+        assertThrows(IllegalStateException.class, () -> circuitBreaker.call("get", () -> {
+            throw new IllegalStateException("codec");
+        }, () -> "fallback"));
+        assertThat(meterRegistry.get("cache.redis.failures").counter().count()).isZero();
+    }
+
+    @Test
+    void call_NonRedisExceptionBetweenFailures_DoesNotResetFailureCount() {
+        // Arrange
+        circuitBreaker.call("get", this::timeout, () -> "fallback");
+
+        // Act
+        assertThrows(IllegalStateException.class, () -> circuitBreaker.call("get", () -> {
+            throw new IllegalStateException("codec");
+        }, () -> "fallback"));
+        circuitBreaker.call("get", this::timeout, () -> "fallback");
+
+        // Assert
+        assertThat(circuitBreaker.getState()).isEqualTo(RedisCircuitBreaker.State.OPEN);
+    }
+
+    @Test
+    void call_ProbeThrowsNonRedisException_KeepsBreakerOpenForNextProbe() throws InterruptedException {
+        // Arrange
+        openBreaker();
+        Thread.sleep(80);
+
+        // Act
+        assertThrows(IllegalStateException.class, () -> circuitBreaker.call("get", () -> {
+            throw new IllegalStateException("codec");
+        }, () -> "fallback"));
+        RedisCircuitBreaker.State afterFailedProbe = circuitBreaker.getState();
+        String nextProbe = circuitBreaker.call("get", () -> "redis", () -> "fallback");
+
+        // Assert
+        assertThat(afterFailedProbe).isEqualTo(RedisCircuitBreaker.State.OPEN);
+        assertThat(nextProbe).isEqualTo("redis");
+        assertThat(circuitBreaker.getState()).isEqualTo(RedisCircuitBreaker.State.CLOSED);
+    }
+
+    private void openBreaker() {
+        circuitBreaker.call("get", this::timeout, () -> "fallback");
+        circuitBreaker.call("get", this::timeout, () -> "fallback");
+    }
+
+    private String timeout() {
+        throw new QueryTimeoutException("Redis command timed out");
+    }
+}
@@ -0,0 +1,267 @@
+package com.ady4k.todoistapi.service;
+
+import com.ady4k.todoistapi.dto.UserDto;
+import com.ady4k.todoistapi.exception.InvalidTokenException;
+import com.ady4k.todoistapi.security.JwtUtil;
+import com.ady4k.todoistapi.security.TokenDenylist;
+import com.ady4k.todoistapi.security.VerifiedToken;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Date;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TokenServiceTest {
+    @Mock
+    private JwtUtil jwtUtil;
+
+    @Mock
+    private RedisCacheService<String> redisCacheService;
+
+    @Mock
+    private SessionValidityCache sessionValidityCache;
+
+    @Mock
+    private TokenDenylist tokenDenylist;
+
+    private TokenService tokenService;
+    private UserDetails userDetails;
+    private VerifiedToken verifiedToken;
+
+    @BeforeEach
+    void setUp() {
+        tokenService = new TokenService(jwtUtil, redisCacheService, sessionValidityCache, tokenDenylist, "30", "14", "reject");
+        userDetails = new User("test", "", Collections.emptyList());
+        verifiedToken = new VerifiedToken("token", "jti-1", "test", new Date(System.currentTimeMillis() + 60_000), new Date(), null);
+    }
+
+    @Test
+    void getOrCreateToken_ExistingSession_ReturnsStoredTokenInOneCall() {
+        // Arrange
+        UserDto userDto = new UserDto(1L, "test");
+        when(jwtUtil.generateToken(userDto)).thenReturn("candidate");
+        when(redisCacheService.getOrPut(eq("test"), eq("candidate"), any(Duration.class), any(Duration.class))).thenReturn("existing");
+        when(jwtUtil.verify("existing")).thenReturn(verifiedToken);
+
+        // Act
+        String token = tokenService.getOrCreateToken(userDto);
+
+        // Assert
+        assertThat(token).isEqualTo("existing");
+        verify(redisCacheService, never()).get(any());
+        verify(sessionValidityCache, times(1)).markActive("test");
+    }
+
+    @Test
+    void getOrCreateToken_StoredTokenRevoked_ReplacesItWithNewToken() {
+        // Arrange
+        UserDto userDto = new UserDto(1L, "test");
+        when(jwtUtil.generateToken(userDto)).thenReturn("candidate");
+        when(redisCacheService.getOrPut(eq("test"), eq("candidate"), any(Duration.class), any(Duration.class))).thenReturn("existing");
+        when(jwtUtil.verify("existing")).thenReturn(verifiedToken);
+        when(tokenDenylist.isRevoked("jti-1")).thenReturn(true);
+
+        // Act
+        String token = tokenService.getOrCreateToken(userDto);
+
+        // Assert
+        assertThat(token).isEqualTo("candidate");
+        verify(redisCacheService, times(1)).put("test", "candidate", Duration.ofMinutes(30));
+    }
+
+    @Test
+    void isTokenValid_SessionKnownLocally_SkipsRedis() {
+        // Arrange
+        when(sessionValidityCache.isKnownActive("test")).thenReturn(true);
+        when(jwtUtil.isTokenValid(verifiedToken, userDetails)).thenReturn(true);
+
+        // Act
+        boolean isValid = tokenService.isTokenValid(verifiedToken, userDetails);
+
+        // Assert
+        assertThat(isValid).isTrue();
+        verifyNoInteractions(redisCacheService);
+    }
+
+    @Test
+    void isTokenValid_SessionUnknownLocally_ChecksRedisAndRemembers() {
+        // Arrange
+        when(sessionValidityCache.isKnownActive("test")).thenReturn(false);
+        when(redisCacheService.get("test")).thenReturn("token");
+        when(jwtUtil.isTokenValid(verifiedToken, userDetails)).thenReturn(true);
+
+        // Act
+        boolean isValid = tokenService.isTokenValid(verifiedToken, userDetails);
+
+        // Assert
+        assertThat(isValid).isTrue();
+        verify(sessionValidityCache, times(1)).markActive("test");
+    }
+
+    @Test
+    void isTokenValid_NoSessionInRedis_ReturnsFalse() {
+        // Arrange
+        when(sessionValidityCache.isKnownActive("test")).thenReturn(false);
+        when(redisCacheService.get("test")).thenReturn(null);
+
+        // Act
+        boolean isValid = tokenService.isTokenValid(verifiedToken, userDetails);
+
+        // Assert
+        assertThat(isValid).isFalse();
+        verify(sessionValidityCache, never()).markActive("test");
+    }
+
+    @Test
+    void isTokenValid_RedisUnavailableAndPolicyAllow_TrustsSignedToken() {
+        // Arrange
+        TokenService degradedTokenService = new TokenService(jwtUtil, redisCacheService, sessionValidityCache, tokenDenylist, "30", "14", "allow");
+        when(redisCacheService.get("test")).thenReturn(null);
+        when(redisCacheService.isAvailable()).thenReturn(false);
+        when(jwtUtil.isTokenValid(verifiedToken, userDetails)).thenReturn(true);
+
+        // Act
+        boolean isValid = degradedTokenService.isTokenValid(verifiedToken, userDetails);
+
+        // Assert
+        assertThat(isValid).isTrue();
+        verify(sessionValidityCache, never()).markActive("test");
+    }
+
+    @Test
+    void isTokenValid_RedisUnavailableAndPolicyReject_ReturnsFalse() {
+        // Arrange
+        when(redisCacheService.get("test")).thenReturn(null);
+        when(redisCacheService.isAvailable()).thenReturn(false);
+
+        // Act
+        boolean isValid = tokenService.isTokenValid(verifiedToken, userDetails);
+
+        // Assert
+        assertThat(isValid).isFalse();
+        verifyNoInteractions(jwtUtil);
+    }
+
+    @Test
+    void isTokenValid_RevokedToken_ReturnsFalse() {
+        // Arrange
+        when(tokenDenylist.isRevoked("jti-1")).thenReturn(true);
+
+        // Act
+        boolean isValid = tokenService.isTokenValid(verifiedToken, userDetails);
+
+        // Assert
+        assertThat(isValid).isFalse();
+        verifyNoInteractions(redisCacheService, jwtUtil);
+    }
+
+    @Test
+    void revokeToken_AddsIdToDenylistOnly() {
+        // Act
+        tokenService.revokeToken(verifiedToken);
+
+        // Assert
+        verify(tokenDenylist, times(1)).revoke("jti-1", verifiedToken.expiration().getTime());
+        verifyNoInteractions(redisCacheService, sessionValidityCache);
+    }
+
+    @Test
+    void revokeToken_OtherTokenOfSameUser_StaysValid() {
+        // Arrange
+        VerifiedToken otherToken = new VerifiedToken("other", "jti-2", "test", new Date(System.currentTimeMillis() + 60_000), new Date(), null);
+        doAnswer(invocation -> when(tokenDenylist.isRevoked("jti-1")).thenReturn(true))
+                .when(tokenDenylist).revoke(eq("jti-1"), anyLong());
+        when(sessionValidityCache.isKnownActive("test")).thenReturn(false);
+        when(redisCacheService.get("test")).thenReturn("other");
+        when(jwtUtil.isTokenValid(otherToken, userDetails)).thenReturn(true);
+
+        // Act
+        tokenService.revokeToken(verifiedToken);
+
+        // Assert
+        assertThat(tokenService.isTokenValid(verifiedToken, userDetails)).isFalse();
+        assertThat(tokenService.isTokenValid(otherToken, userDetails)).isTrue();
+        verify(redisCacheService, never()).evict(anyString());
+    }
+
+    @Test
+    void invalidateToken_EvictsRedisAndBroadcasts() {
+        // Act
+        tokenService.invalidateToken(new UserDto("test"));
+
+        // Assert
+        verify(redisCacheService, times(1)).evict("test");
+        verify(sessionValidityCache, times(1)).invalidate("test");
+    }
+
+    @Test
+    void createRefreshToken_StoresDigestAndFamily() {
+        // Act
+        String refreshToken = tokenService.createRefreshToken(new UserDto("test"));
+
+        // Assert
+        assertThat(refreshToken).isNotBlank();
+        verify(redisCacheService, times(1)).putAll(argThat(entries -> entries.size() == 2
+                && entries.get("REFRESH:" + JwtUtil.digest(refreshToken)).endsWith(":test")
+                && entries.containsValue(JwtUtil.digest(refreshToken))), any(Duration.class));
+    }
+
+    @Test
+    void rotateRefreshToken_ValidToken_IssuesNewTokenInSameFamily() {
+        // Arrange
+        String digest = JwtUtil.digest("refresh");
+        when(redisCacheService.getAndMove(eq("REFRESH:" + digest), eq("REFRESH:USED:" + digest), any(Duration.class)))
+                .thenReturn("family-1:test");
+
+        // Act
+        TokenService.RefreshGrant grant = tokenService.rotateRefreshToken("refresh");
+
+        // Assert
+        assertThat(grant.username()).isEqualTo("test");
+        assertThat(grant.refreshToken()).isNotEqualTo("refresh");
+        verify(redisCacheService, times(1)).putAll(argThat(entries ->
+                "family-1:test".equals(entries.get("REFRESH:" + JwtUtil.digest(grant.refreshToken())))), any(Duration.class));
+    }
+
+    @Test
+    void rotateRefreshToken_ReusedToken_RevokesFamilyAndThrows() {
+        // Arrange
+        String digest = JwtUtil.digest("refresh");
+        when(redisCacheService.getAndMove(eq("REFRESH:" + digest), eq("REFRESH:USED:" + digest), any(Duration.class)))
+                .thenReturn(null);
+        when(redisCacheService.get("REFRESH:USED:" + digest)).thenReturn("family-1:test");
+        when(redisCacheService.getAndEvict("REFRESH:FAMILY:family-1")).thenReturn("current-digest");
+
+        // Act & Assert
+        assertThrows(InvalidTokenException.class, () -> tokenService.rotateRefreshToken("refresh"));
+        verify(redisCacheService, times(1)).evict("REFRESH:current-digest");
+        verify(sessionValidityCache, times(1)).invalidate("test");
+    }
+
+    @Test
+    void rotateRefreshToken_UnknownToken_Throws() {
+        // Act & Assert
+        assertThrows(InvalidTokenException.class, () -> tokenService.rotateRefreshToken("refresh"));
+        verify(sessionValidityCache, never()).invalidate(any());
+    }
+
+    @Test
+    void rotateRefreshToken_MissingToken_ThrowsWithoutTouchingRedis() {
+        // Act & Assert
+        assertThrows(InvalidTokenException.class, () -> tokenService.rotateRefreshToken(null));
+        assertThrows(InvalidTokenException.class, () -> tokenService.rotateRefreshToken(" "));
+        verifyNoInteractions(redisCacheService);
+    }
+}
@@ -0,0 +1,63 @@
+package com.ady4k.todoistapi.service;
+
+import com.ady4k.todoistapi.repository.UserRepository;
+import com.ady4k.todoistapi.repository.UserSummary;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class UserExportServiceTest {
+    @Mock
+    private UserRepository userRepository;
+
+    private UserExportService userExportService;
+
+    @BeforeEach
+    void setUp() {
+        userExportService = new UserExportService(userRepository, new ObjectMapper());
+    }
+
+    @Test
+    void exportNdjson_UsersInDb_WritesOneJsonLinePerUser() throws IOException {
+        // Arrange
+        when(userRepository.streamAllOrderedById())
+                .thenReturn(Stream.of(new UserSummary(1L, "test"), new UserSummary(2L, "test2")));
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        // Act
+        long exported = userExportService.exportNdjson(output);
+
+        // Assert
+        assertThat(exported).isEqualTo(2);
+        assertThat(output.toString(StandardCharsets.UTF_8)).isEqualTo(
+                "{\"id\":1,\"username\":\"test\",\"password\":null}\n"
+                        + "{\"id\":2,\"username\":\"test2\",\"password\":null}\n");
+    }
+
+    @Test
+    void exportNdjson_Finished_ClosesTheStream() throws IOException {
+        // Arrange
+        AtomicBoolean closed = new AtomicBoolean();
+        when(userRepository.streamAllOrderedById()).thenReturn(Stream.<UserSummary>empty().onClose(() -> closed.set(true)));
+
+        // Act
+        long exported = userExportService.exportNdjson(new ByteArrayOutputStream());
+
+        // Assert
+        assertThat(exported).isZero();
+        assertThat(closed).isTrue();
+    }
+}
@@ -1,31 +1,41 @@
 package com.ady4k.todoistapi.service;
 
 import com.ady4k.todoistapi.dto.UserDto;
+import com.ady4k.todoistapi.dto.UserPageDto;
 import com.ady4k.todoistapi.exception.AlreadyExistsException;
+import com.ady4k.todoistapi.exception.InvalidCursorException;
 import com.ady4k.todoistapi.exception.ResourceNotFoundException;
 import com.ady4k.todoistapi.model.User;
 import com.ady4k.todoistapi.repository.UserRepository;
+import com.ady4k.todoistapi.repository.UserSummary;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Function;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
 class UserServiceTest {
-    @InjectMocks
     private UserService userService;
 
     @Mock
@@ -35,7 +45,10 @@ class UserServiceTest {
     private PasswordEncoder passwordEncoder;
 
     @Mock
-    private MultiLayerCacheService cacheService;
+    private MultiLayerCacheService<UserDto> usersByIdCache;
+
+    @Mock
+    private MultiLayerCacheService<UserDto> usersByUsernameCache;
 
     private UserDto userDto;
     private User user;
@@ -44,32 +57,73 @@ class UserServiceTest {
     void setUp() {
         userDto = new UserDto(1L, "test", "pass");
         user = new User(1L, "test", "pass");
+        userService = new UserService(userRepository, passwordEncoder, usersByIdCache, usersByUsernameCache);
+        lenient().when(usersByIdCache.getOrLoad(anyString(), any()))
+                .thenAnswer(invocation -> invocation.<Function<String, UserDto>>getArgument(1).apply(invocation.getArgument(0)));
+        lenient().when(usersByUsernameCache.getOrLoad(anyString(), any()))
+                .thenAnswer(invocation -> invocation.<Function<String, UserDto>>getArgument(1).apply(invocation.getArgument(0)));
     }
 
     @Test
-    void getAllUsers_UsersInDb_ReturnsListOfUserDto() {
+    void getUsers_MoreRowsThanPageSize_ReturnsPageAndNextCursor() {
         // Arrange
-        List<UserDto> expected = List.of(
-                new UserDto(1L, "test", null),
-                new UserDto(2L, "test2", null)
+        List<UserSummary> users = List.of(
+                new UserSummary(1L, "test"),
+                new UserSummary(2L, "test2"),
+                new UserSummary(3L, "test3")
         );
-        List<User> users = List.of(
-                new User(1L, "test", "pass"),
-                new User(2L, "test2", "pass2")
-        );
-        when(userRepository.findAll()).thenReturn(users);
+        when(userRepository.findSummariesByIdGreaterThanOrderByIdAsc(Long.MIN_VALUE, Limit.of(3))).thenReturn(users);
 
         // Act
-        List<UserDto> result = userService.getAllUsers();
+        UserPageDto result = userService.getUsers(null, 2);
 
         // Assert
-        assertThat(result).isNotNull().hasSize(2).containsExactlyElementsOf(expected);
+        assertThat(result.getUsers()).containsExactly(new UserDto(1L, "test", null), new UserDto(2L, "test2", null));
+        assertThat(result.getNextCursor()).isNotNull();
+    }
+
+    @Test
+    void getUsers_WithNextCursor_ContinuesAfterLastId() {
+        // Arrange
+        when(userRepository.findSummariesByIdGreaterThanOrderByIdAsc(Long.MIN_VALUE, Limit.of(2)))
+                .thenReturn(List.of(new UserSummary(1L, "test"), new UserSummary(2L, "test2")));
+        when(userRepository.findSummariesByIdGreaterThanOrderByIdAsc(1L, Limit.of(2)))
+                .thenReturn(List.of(new UserSummary(2L, "test2")));
+        String cursor = userService.getUsers(null, 1).getNextCursor();
+
+        // Act
+        UserPageDto result = userService.getUsers(cursor, 1);
+
+        // Assert
+        assertThat(result.getUsers()).containsExactly(new UserDto(2L, "test2", null));
+        assertThat(result.getNextCursor()).isNull();
+    }
+
+    @Test
+    void getUsers_PageSizeAboveMaximum_IsCapped() {
+        // Arrange
+        when(userRepository.findSummariesByIdGreaterThanOrderByIdAsc(Long.MIN_VALUE, Limit.of(UserService.MAX_PAGE_SIZE + 1)))
+                .thenReturn(List.of());
+
+        // Act
+        UserPageDto result = userService.getUsers(null, 100_000);
+
+        // Assert
+        assertThat(result.getUsers()).isEmpty();
+        assertThat(result.getNextCursor()).isNull();
+    }
+
+    @Test
+    void getUsers_MalformedCursor_Throws() {
+        // Act & Assert
+        assertThrows(InvalidCursorException.class, () -> userService.getUsers("not a cursor!", 10));
+        verify(userRepository, never()).findSummariesByIdGreaterThanOrderByIdAsc(any(), any());
     }
 
     @Test
     void getUserById_UserExists_ReturnCorrectUserDto() {
         // Arrange
-        when(userRepository.findById(1L)).thenReturn(Optional.of(user));
+        when(userRepository.findSummaryById(1L)).thenReturn(Optional.of(new UserSummary(1L, "test")));
 
         // Act
         UserDto result = userService.getUserById(1L);
@@ -82,7 +136,7 @@ class UserServiceTest {
     @Test
     void getUserById_UserNotExisting_Throw() {
         // Arrange
-        when(userRepository.findById(1L)).thenThrow(new ResourceNotFoundException("User with id 1 not found"));
+        when(userRepository.findSummaryById(1L)).thenThrow(new ResourceNotFoundException("User with id 1 not found"));
 
         // Act & Assert
         ResourceNotFoundException thrown = assertThrows(
@@ -93,10 +147,20 @@ class UserServiceTest {
         assertThat(thrown.getMessage().contains("User with id 1 not found")).isTrue();
     }
 
+    @Test
+    void getUserById_CachedAsAbsent_ThrowsWithoutQueryingDb() {
+        // Arrange
+        when(usersByIdCache.getOrLoad(eq("1"), any())).thenReturn(null);
+
+        // Act & Assert
+        assertThrows(ResourceNotFoundException.class, () -> userService.getUserById(1L));
+        verifyNoInteractions(userRepository);
+    }
+
     @Test
     void getUserByUsername_UserExists_ReturnCorrectUserDto() {
         // Arrange
-        when(userRepository.findByUsername("test")).thenReturn(Optional.of(user));
+        when(userRepository.findSummaryByUsername("test")).thenReturn(Optional.of(new UserSummary(1L, "test")));
 
         // Act
         UserDto result = userService.getUserByUsername("test");
@@ -109,7 +173,7 @@ class UserServiceTest {
     @Test
     void getUserByUsername_UserNotExisting_Throw() {
         // Arrange
-        when(userRepository.findByUsername("test")).thenThrow(new ResourceNotFoundException("User with username test not found"));
+        when(userRepository.findSummaryByUsername("test")).thenThrow(new ResourceNotFoundException("User with username test not found"));
 
         // Act & Assert
         ResourceNotFoundException thrown = assertThrows(
@@ -123,7 +187,7 @@ class UserServiceTest {
     @Test
     void createUser_UsernameNotTaken_CreatesSuccessfully() {
         // Arrange
-        when(userRepository.findByUsername("test")).thenReturn(Optional.empty());
+        when(userRepository.existsByUsername("test")).thenReturn(false);
         when(userRepository.save(any(User.class))).thenReturn(user);
         when(passwordEncoder.encode("pass")).thenReturn("pass");
 
@@ -138,7 +202,7 @@ class UserServiceTest {
     @Test
     void createUser_UsernameIsTaken_Throw() {
         // Arrange
-        when(userRepository.findByUsername("test")).thenReturn(Optional.of(user));
+        when(userRepository.existsByUsername("test")).thenReturn(true);
 
         // Act & Assert
         AlreadyExistsException thrown = assertThrows(
@@ -176,4 +240,43 @@ class UserServiceTest {
         );
         assertThat(thrown.getMessage().contains("User not found")).isTrue();
     }
-}
\ No newline at end of file
+
+    @Test
+    void loadAuthenticatedUser_CalledTwice_QueriesRepositoryOnce() {
+        // Arrange
+        when(userRepository.findByUsername("test")).thenReturn(Optional.of(user));
+
+        // Act
+        UserDetails first = userService.loadAuthenticatedUser("test");
+        UserDetails second = userService.loadAuthenticatedUser("test");
+
+        // Assert
+        assertThat(first.getUsername()).isEqualTo("test");
+        assertThat(first.getPassword()).isEmpty();
+        assertThat(second).isSameAs(first);
+        verify(userRepository, times(1)).findByUsername("test");
+    }
+
+    @Test
+    void loadAuthenticatedUser_AfterEviction_QueriesRepositoryAgain() {
+        // Arrange
+        when(userRepository.findByUsername("test")).thenReturn(Optional.of(user));
+        userService.loadAuthenticatedUser("test");
+
+        // Act
+        userService.evictAuthenticatedUser("test");
+        userService.loadAuthenticatedUser("test");
+
+        // Assert
+        verify(userRepository, times(2)).findByUsername("test");
+    }
+
+    @Test
+    void loadAuthenticatedUser_UserNotExisting_Throw() {
+        // Arrange
+        when(userRepository.findByUsername("test")).thenReturn(Optional.empty());
+
+        // Act & Assert
+        assertThrows(UsernameNotFoundException.class, () -> userService.loadAuthenticatedUser("test"));
+    }
+}
@@ -0,0 +1,67 @@
+package com.ady4k.todoistapi.service.codec;
+
+import com.ady4k.todoistapi.dto.UserDto;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CacheCodecTest {
+    private final UserDtoCacheCodec binaryCodec = new UserDtoCacheCodec();
+    private final JsonCacheCodec<UserDto> jsonCodec = new JsonCacheCodec<>(new ObjectMapper(), UserDto.class);
+    private final StringCacheCodec stringCodec = new StringCacheCodec();
+
+    @Test
+    void binaryCodec_RoundTrip_KeepsIdAndUsernameOnly() {
+        // Arrange
+        UserDto userDto = new UserDto(1L, "test", "pass");
+
+        // Act
+        UserDto decoded = binaryCodec.decode(binaryCodec.encode(userDto));
+
+        // Assert
+        assertThat(decoded).isEqualTo(new UserDto(1L, "test"));
+    }
+
+    @Test
+    void binaryCodec_NullId_RoundTrips() {
+        // Act
+        UserDto decoded = binaryCodec.decode(binaryCodec.encode(new UserDto("test")));
+
+        // Assert
+        assertThat(decoded.getId()).isNull();
+        assertThat(decoded.getUsername()).isEqualTo("test");
+    }
+
+    @Test
+    void jsonCodec_RoundTrip_ReturnsEqualDto() {
+        // Arrange
+        UserDto userDto = new UserDto(1L, "test");
+
+        // Act
+        byte[] encoded = jsonCodec.encode(userDto);
+
+        // Assert
+        assertThat(new String(encoded, 2, encoded.length - 2, StandardCharsets.UTF_8)).doesNotContain("password");
+        assertThat(jsonCodec.decode(encoded)).isEqualTo(userDto);
+    }
+
+    @Test
+    void stringCodec_RoundTrip_ReturnsSameString() {
+        // Act & Assert
+        assertThat(stringCodec.decode(stringCodec.encode("token"))).isEqualTo("token");
+    }
+
+    @Test
+    void decode_ValueWrittenByOtherCodec_ReturnsNull() {
+        // Arrange
+        byte[] json = jsonCodec.encode(new UserDto(1L, "test"));
+
+        // Act & Assert
+        assertThat(binaryCodec.decode(json)).isNull();
+        assertThat(binaryCodec.decode("legacy".getBytes(StandardCharsets.UTF_8))).isNull();
+        assertThat(binaryCodec.decode(new byte[0])).isNull();
+    }
+}